@@ -0,0 +1,94 @@
+package com.migros.courierproducerapp.config;
+
+import com.migros.courierproducerapp.util.VirtualThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to serve a burst of concurrent tasks that each block on a 5 ms database call, on virtual threads and on
+ * the platform threads that run them without the virtual-threads flag.
+ * <p>
+ * The {@code platform} executor is the pool of {@code spring.task.execution}, which runs async MVC requests and
+ * {@code @Async} tasks. With a bounded queue, the pool only grows past its core size once the queue is full, so a
+ * burst smaller than the queue runs on the 2 core threads. The {@code undertow} executor is the worker pool that
+ * serves plain servlet requests, sized as Undertow does by default: 8 workers per I/O thread, one I/O thread per
+ * core but at least 2. The {@code virtual} executor needs a Java 21+ JVM to run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExecutionBenchmark {
+
+    private static final long BLOCKING_CALL_MILLIS = 5;
+
+    /**
+     * Undertow's default number of worker threads per I/O thread.
+     */
+    private static final int UNDERTOW_WORKERS_PER_IO_THREAD = 8;
+
+    @Param({"platform", "undertow", "virtual"})
+    public String executor;
+
+    @Param({"100", "1000"})
+    public int requests;
+
+    private ThreadPoolTaskExecutor platformExecutor;
+
+    private ExecutorService virtualExecutor;
+
+    @Setup
+    public void setUp() {
+        if ("virtual".equals(executor)) {
+            virtualExecutor = VirtualThreads.newThreadPerTaskExecutor("benchmark-");
+        } else if ("undertow".equals(executor)) {
+            int workers = Math.max(Runtime.getRuntime().availableProcessors(), 2) * UNDERTOW_WORKERS_PER_IO_THREAD;
+            platformExecutor = new TaskExecutorBuilder().corePoolSize(workers).maxPoolSize(workers)
+                .threadNamePrefix("benchmark-").build();
+            platformExecutor.initialize();
+        } else {
+            platformExecutor = new TaskExecutorBuilder().corePoolSize(2).maxPoolSize(50).queueCapacity(10000)
+                .threadNamePrefix("benchmark-").build();
+            platformExecutor.initialize();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdown();
+        } else {
+            platformExecutor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void burst() throws InterruptedException {
+        Executor target = virtualExecutor != null ? virtualExecutor : platformExecutor;
+        CountDownLatch done = new CountDownLatch(requests);
+        for (int i = 0; i < requests; i++) {
+            target.execute(() -> {
+                try {
+                    Thread.sleep(BLOCKING_CALL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+}
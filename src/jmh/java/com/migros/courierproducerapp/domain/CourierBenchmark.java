@@ -0,0 +1,76 @@
+package com.migros.courierproducerapp.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link Courier#equals(Object)} and {@link Courier#hashCode()} on two equal persisted pings, and of
+ * {@code equals} on a new ping without an id, against the former implementations: getters chained with
+ * {@code equals}, throwing on a {@code null} field, and {@code Objects.hash} allocating a varargs array.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CourierBenchmark {
+
+    private Courier courier;
+
+    private Courier copy;
+
+    private Courier unsaved;
+
+    @Setup
+    public void setUp() {
+        courier = courier("5ed3b1c8e4b0a1b2c3d4e5f6");
+        copy = courier("5ed3b1c8e4b0a1b2c3d4e5f6");
+        unsaved = courier(null);
+    }
+
+    private static Courier courier(String id) {
+        Courier courier = new Courier();
+        courier.setId(id);
+        courier.setCourierID("courier-42");
+        courier.setLat(40.9923307);
+        courier.setLng(29.1244229);
+        courier.setTimestamp(LocalDateTime.of(2020, 6, 1, 12, 30, 15, 123000000));
+        return courier;
+    }
+
+    @Benchmark
+    public boolean legacyEquals() {
+        return courier.getId().equals(copy.getId()) &&
+            courier.getCourierID().equals(copy.getCourierID()) &&
+            courier.getLat().equals(copy.getLat()) &&
+            courier.getLng().equals(copy.getLng()) &&
+            courier.getTimestamp().equals(copy.getTimestamp());
+    }
+
+    @Benchmark
+    public boolean nullSafeEquals() {
+        return courier.equals(copy);
+    }
+
+    @Benchmark
+    public boolean nullSafeEqualsUnsaved() {
+        return unsaved.equals(courier);
+    }
+
+    @Benchmark
+    public int legacyHashCode() {
+        return Objects.hash(courier.getId(), courier.getCourierID(), courier.getLat(), courier.getLng(), courier.getTimestamp());
+    }
+
+    @Benchmark
+    public int unrolledHashCode() {
+        return courier.hashCode();
+    }
+}
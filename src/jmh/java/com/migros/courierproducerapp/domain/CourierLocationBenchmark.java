@@ -0,0 +1,88 @@
+package com.migros.courierproducerapp.domain;
+
+import com.migros.courierproducerapp.service.dto.CourierDTO;
+import com.migros.courierproducerapp.service.kafka.CourierBinaryCodec;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the entity and {@link CourierLocation} representations of a ping on the distance and publish paths.
+ * Run with the {@code gc} profiler, {@code gc.alloc.rate.norm} is the allocation per ping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CourierLocationBenchmark {
+
+    private MappingMongoConverter converter;
+
+    private Document document;
+
+    private Courier courier;
+
+    @Setup
+    public void setUp() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setInitialEntitySet(Collections.singleton(Courier.class));
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        LocalDateTime timestamp = LocalDateTime.of(2020, 6, 1, 12, 30, 15, 123000000);
+        document = new Document("lat", 40.9923307)
+            .append("lng", 29.1244229)
+            .append("timestamp", Date.from(timestamp.atZone(ZoneId.systemDefault()).toInstant()));
+        courier = new Courier();
+        courier.setCourierID("courier-42");
+        courier.setLat(40.9923307);
+        courier.setLng(29.1244229);
+        courier.setTimestamp(timestamp);
+    }
+
+    /**
+     * A track document mapped to an entity, as the track used to be streamed.
+     */
+    @Benchmark
+    public Courier readEntity() {
+        return converter.read(Courier.class, document);
+    }
+
+    /**
+     * A track document read into a location, as the track is streamed now.
+     */
+    @Benchmark
+    public CourierLocation readLocation() {
+        return new CourierLocation("courier-42", document.getDouble("lat"), document.getDouble("lng"),
+            CourierLocation.toEpochMillis(document.getDate("timestamp")));
+    }
+
+    /**
+     * A ping published in the binary format through a DTO, as it used to be.
+     */
+    @Benchmark
+    public byte[] encodeDto() {
+        return CourierBinaryCodec.encode(new CourierDTO(courier));
+    }
+
+    /**
+     * A ping published in the binary format through a location.
+     */
+    @Benchmark
+    public byte[] encodeLocation() {
+        return CourierBinaryCodec.encode(CourierLocation.of(courier));
+    }
+}
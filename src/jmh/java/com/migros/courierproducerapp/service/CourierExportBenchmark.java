@@ -0,0 +1,133 @@
+package com.migros.courierproducerapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.migros.courierproducerapp.domain.Courier;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Throughput of the courier export over documents already read from the cursor, as streamed NDJSON, gzipped
+ * NDJSON, and as the mapped {@code List<Courier>} a page of {@code GET /api/couriers} serializes.
+ * The {@code rows} and {@code bytes} counters are per second, {@code bytes} being the size of the response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CourierExportBenchmark {
+
+    @Param({"ndjson", "ndjson-gzip", "json-list"})
+    public String format;
+
+    @Param({"10000"})
+    public int rows;
+
+    private List<Document> documents;
+
+    private CourierExportService exportService;
+
+    private MappingMongoConverter converter;
+
+    private ObjectMapper objectMapper;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+
+        public long rows;
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        exportService = new CourierExportService(null, objectMapper);
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setInitialEntitySet(Collections.singleton(Courier.class));
+        MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        documents = new ArrayList<>(rows);
+        long start = 1590969600000L;
+        for (int i = 0; i < rows; i++) {
+            documents.add(new Document("_id", ObjectId.get())
+                .append("courierID", "courier-" + (i % 100))
+                .append("lat", 40.99 + i * 1e-5)
+                .append("lng", 29.12 + i * 1e-5)
+                .append("timestamp", new Date(start + i * 1000L)));
+        }
+    }
+
+    @Benchmark
+    public long export(Counters counters) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        long written;
+        if ("ndjson-gzip".equals(format)) {
+            GZIPOutputStream compressed = new GZIPOutputStream(out, 65536);
+            written = exportService.write(documents.iterator(), compressed);
+            compressed.finish();
+        } else if ("ndjson".equals(format)) {
+            written = exportService.write(documents.iterator(), out);
+        } else {
+            List<Courier> couriers = new ArrayList<>(documents.size());
+            for (Document document : documents) {
+                couriers.add(converter.read(Courier.class, document));
+            }
+            objectMapper.writeValue(out, couriers);
+            written = couriers.size();
+        }
+        counters.rows += written;
+        counters.bytes += out.count;
+        return written;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.migros.courierproducerapp.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.migros.courierproducerapp.aop.logging.LoggingAspect;
+import com.migros.courierproducerapp.config.ApplicationProperties;
+import com.migros.courierproducerapp.domain.Courier;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.stereotype.Service;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the logging aspect around a service call on the ingest path, with debug logs enabled and written to a
+ * discarding appender, as with the former production log levels.
+ * <p>
+ * {@code legacy} is the former aspect, resolving the logger on every call. {@code full} is the current aspect
+ * logging every call, {@code full-async} formats and writes on the emitter thread, {@code full-sampled} logs 1%
+ * of the calls and {@code timings} only times them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TracingBenchmark {
+
+    @Param({"none", "legacy", "full", "full-async", "full-sampled", "timings"})
+    public String aspect;
+
+    private IngestService service;
+
+    private LoggingAspect loggingAspect;
+
+    private Courier courier;
+
+    @Service
+    public static class IngestService {
+
+        public Courier save(Courier courier) {
+            return courier;
+        }
+    }
+
+    /**
+     * The former aspect, with the logger lookup and the argument formatting on every call.
+     */
+    @Aspect
+    public static class LegacyLoggingAspect {
+
+        @Pointcut("within(@org.springframework.stereotype.Service *)")
+        public void springBeanPointcut() {
+        }
+
+        @Around("springBeanPointcut()")
+        public Object logAround(ProceedingJoinPoint joinPoint) throws Throwable {
+            Logger log = LoggerFactory.getLogger(joinPoint.getSignature().getDeclaringTypeName());
+            if (log.isDebugEnabled()) {
+                log.debug("Enter: {}() with argument[s] = {}", joinPoint.getSignature().getName(),
+                    Arrays.toString(joinPoint.getArgs()));
+            }
+            Object result = joinPoint.proceed();
+            if (log.isDebugEnabled()) {
+                log.debug("Exit: {}() with result = {}", joinPoint.getSignature().getName(), result);
+            }
+            return result;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        configureLogging();
+        courier = new Courier();
+        courier.setId("5ed3b1c8e4b0a1b2c3d4e5f6");
+        courier.setCourierID("courier-42");
+        courier.setLat(40.9923307);
+        courier.setLng(29.1244229);
+        courier.setTimestamp(LocalDateTime.of(2020, 6, 1, 12, 30, 15));
+        AspectJProxyFactory factory = new AspectJProxyFactory(new IngestService());
+        factory.setProxyTargetClass(true);
+        ApplicationProperties properties = new ApplicationProperties();
+        switch (aspect) {
+            case "none":
+                service = new IngestService();
+                return;
+            case "legacy":
+                factory.addAspect(new LegacyLoggingAspect());
+                service = factory.getProxy();
+                return;
+            case "full-async":
+                properties.getTracing().setAsync(true);
+                break;
+            case "full-sampled":
+                properties.getTracing().setSamplingRate(0.01);
+                break;
+            case "timings":
+                properties.getTracing().setMode(ApplicationProperties.Tracing.Mode.TIMINGS);
+                break;
+            default:
+                break;
+        }
+        loggingAspect = new LoggingAspect(new StandardEnvironment(), properties);
+        factory.addAspect(loggingAspect);
+        service = factory.getProxy();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (loggingAspect != null) {
+            loggingAspect.close();
+        }
+    }
+
+    @Benchmark
+    public Courier save() {
+        return service.save(courier);
+    }
+
+    private static void configureLogging() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %-5level [%thread] %logger{36} : %msg%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        appender.start();
+        ch.qos.logback.classic.Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.DEBUG);
+        root.addAppender(appender);
+    }
+}
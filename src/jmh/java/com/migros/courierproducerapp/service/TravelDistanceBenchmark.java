@@ -0,0 +1,172 @@
+package com.migros.courierproducerapp.service;
+
+import ch.qos.logback.classic.Level;
+import com.migros.courierproducerapp.config.ApplicationProperties;
+import com.migros.courierproducerapp.domain.CourierLocation;
+import com.migros.courierproducerapp.domain.CourierStats;
+import com.migros.courierproducerapp.repository.CourierRepository;
+import com.migros.courierproducerapp.repository.CourierStatsRepository;
+import com.migros.courierproducerapp.service.impl.CourierServiceImpl;
+import com.migros.courierproducerapp.util.GeoUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.util.CloseableIterator;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Travel distance of synthetic tracks of 1k, 100k and 1M pings, as read by the services from a Mongo cursor,
+ * here replaced by an iterator over pings already in memory so that only the computation is measured. Debug logs
+ * are disabled, as in production.
+ * <p>
+ * {@code travelDistance} sums a time range through {@code getTravelDistance}, {@code rebuildStats} recomputes the
+ * aggregate of a courier, and {@code totalTravelDistance} reads the maintained aggregate, which
+ * {@code getTotalTravelDistance} answers from whatever the length of the track. {@code legacyDistFrom} is the
+ * former per-pair loop over boxed coordinates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TravelDistanceBenchmark {
+
+    private static final String COURIER_ID = "courier-42";
+
+    @Param({"1000", "100000", "1000000"})
+    public int points;
+
+    private CourierLocation[] track;
+
+    private Double[] boxedLat;
+
+    private Double[] boxedLng;
+
+    private CourierService courierService;
+
+    private CourierStatsService courierStatsService;
+
+    @Setup
+    public void setUp() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        Random random = new Random(42);
+        track = new CourierLocation[points];
+        boxedLat = new Double[points];
+        boxedLng = new Double[points];
+        double lat = 40.9923307;
+        double lng = 29.1244229;
+        double heading = 0;
+        long timestamp = 1590969600000L;
+        for (int i = 0; i < points; i++) {
+            track[i] = new CourierLocation(COURIER_ID, lat, lng, timestamp);
+            boxedLat[i] = lat;
+            boxedLng[i] = lng;
+            heading += random.nextGaussian() * 0.5;
+            double meters = random.nextDouble() * 75;
+            lng += meters * Math.sin(heading) / (111320 * Math.cos(Math.toRadians(lat)));
+            lat += meters * Math.cos(heading) / 111320;
+            timestamp += 5000;
+        }
+        CourierStats stats = new CourierStats(COURIER_ID);
+        stats.setTotalDistance(GeoUtils.haversineLength(latitudes(), longitudes(), points));
+        stats.setPingCount(points);
+        CourierRepository courierRepository = stub(CourierRepository.class, (method, args) ->
+            "streamTrack".equals(method) ? new TrackIterator(track) : null);
+        CourierStatsRepository courierStatsRepository = stub(CourierStatsRepository.class, (method, args) -> {
+            if ("findById".equals(method)) {
+                return Optional.of(stats);
+            }
+            return "save".equals(method) ? args[0] : null;
+        });
+        CourierMetrics courierMetrics = new CourierMetrics(new SimpleMeterRegistry());
+        courierStatsService = new CourierStatsService(courierRepository, courierStatsRepository, courierMetrics);
+        courierService = new CourierServiceImpl(courierRepository, null, courierStatsService, null, null, null,
+            courierMetrics, new ApplicationProperties());
+    }
+
+    @Benchmark
+    public double legacyDistFrom() {
+        double total = 0;
+        for (int i = 1; i < points; i++) {
+            total += GeoUtils.haversine(boxedLat[i - 1], boxedLng[i - 1], boxedLat[i], boxedLng[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Double travelDistance() {
+        return courierService.getTravelDistance(COURIER_ID, null, null);
+    }
+
+    @Benchmark
+    public CourierStats rebuildStats() {
+        return courierStatsService.rebuild(COURIER_ID);
+    }
+
+    @Benchmark
+    public Double totalTravelDistance() {
+        return courierService.getTotalTravelDistance(COURIER_ID);
+    }
+
+    private double[] latitudes() {
+        double[] lat = new double[points];
+        for (int i = 0; i < points; i++) {
+            lat[i] = track[i].getLat();
+        }
+        return lat;
+    }
+
+    private double[] longitudes() {
+        double[] lng = new double[points];
+        for (int i = 0; i < points; i++) {
+            lng[i] = track[i].getLng();
+        }
+        return lng;
+    }
+
+    private interface Answer {
+
+        Object answer(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, Answer answer) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+            (proxy, method, args) -> answer.answer(method.getName(), args));
+    }
+
+    private static final class TrackIterator implements CloseableIterator<CourierLocation> {
+
+        private final CourierLocation[] track;
+
+        private int next;
+
+        private TrackIterator(CourierLocation[] track) {
+            this.track = track;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < track.length;
+        }
+
+        @Override
+        public CourierLocation next() {
+            return track[next++];
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.migros.courierproducerapp.service.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.domain.CourierLocation;
+import com.migros.courierproducerapp.service.kafka.CourierDTOSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a saved {@link Courier} into the JSON of its {@link CourierDTO}: the conversion alone, the
+ * whole path to the Kafka record value from the entity and from its {@link CourierLocation}, and the REST
+ * response body of the entity for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CourierDTOConversionBenchmark {
+
+    private final CourierDTOSerializer serializer = new CourierDTOSerializer();
+
+    private ObjectWriter restWriter;
+
+    private Courier courier;
+
+    @Setup
+    public void setUp() {
+        restWriter = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .writerFor(Courier.class);
+        courier = new Courier();
+        courier.setId("5ed3b1c8e4b0a1b2c3d4e5f6");
+        courier.setCourierID("courier-42");
+        courier.setLat(40.9923307);
+        courier.setLng(29.1244229);
+        courier.setTimestamp(LocalDateTime.of(2020, 6, 1, 12, 30, 15, 123000000));
+    }
+
+    @Benchmark
+    public CourierDTO toDTO() {
+        return new CourierDTO(courier);
+    }
+
+    @Benchmark
+    public byte[] toDTOJson() {
+        return serializer.serialize("topic_courier", new CourierDTO(courier));
+    }
+
+    @Benchmark
+    public byte[] toLocationDTOJson() {
+        return serializer.serialize("topic_courier", new CourierDTO(CourierLocation.of(courier)));
+    }
+
+    @Benchmark
+    public byte[] toRestJson() throws JsonProcessingException {
+        return restWriter.writeValueAsBytes(courier);
+    }
+}
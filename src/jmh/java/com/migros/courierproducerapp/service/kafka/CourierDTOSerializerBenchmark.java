@@ -0,0 +1,62 @@
+package com.migros.courierproducerapp.service.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.service.dto.CourierDTO;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the shared {@link CourierDTOSerializer} with the former path, which reconfigured an
+ * {@link ObjectMapper} on every record and went through a {@code String}.
+ * Run with the {@code gc} profiler to compare the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class CourierDTOSerializerBenchmark {
+
+    private final ObjectMapper legacyMapper = new ObjectMapper();
+
+    private final StringSerializer stringSerializer = new StringSerializer();
+
+    private final CourierDTOSerializer serializer = new CourierDTOSerializer();
+
+    private CourierDTO courierDTO;
+
+    @Setup
+    public void setUp() {
+        Courier courier = new Courier();
+        courier.setCourierID("courier-42");
+        courier.setLat(40.9923307);
+        courier.setLng(29.1244229);
+        courier.setTimestamp(LocalDateTime.of(2020, 6, 1, 12, 30, 15, 123000000));
+        courierDTO = new CourierDTO(courier);
+    }
+
+    @Benchmark
+    public byte[] legacyMapperAndString() throws JsonProcessingException {
+        legacyMapper.registerModule(new JavaTimeModule());
+        legacyMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return stringSerializer.serialize("topic_courier", legacyMapper.writeValueAsString(courierDTO));
+    }
+
+    @Benchmark
+    public byte[] sharedWriter() {
+        return serializer.serialize("topic_courier", courierDTO);
+    }
+}
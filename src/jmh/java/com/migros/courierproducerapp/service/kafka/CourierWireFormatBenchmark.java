@@ -0,0 +1,92 @@
+package com.migros.courierproducerapp.service.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.service.dto.CourierDTO;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON and binary wire formats of the courier topic.
+ * The {@code bytes} counter divided by the operation count is the record size of each format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CourierWireFormatBenchmark {
+
+    private final CourierDTOSerializer jsonSerializer = new CourierDTOSerializer();
+
+    private final CourierDTOBinarySerializer binarySerializer = new CourierDTOBinarySerializer();
+
+    private final CourierDTOBinaryDeserializer binaryDeserializer = new CourierDTOBinaryDeserializer();
+
+    private final ObjectReader jsonReader = new ObjectMapper().registerModule(new JavaTimeModule()).readerFor(CourierDTO.class);
+
+    private CourierDTO courierDTO;
+
+    private byte[] json;
+
+    private byte[] binary;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RecordSize {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Courier courier = new Courier();
+        courier.setCourierID("courier-42");
+        courier.setLat(40.9923307);
+        courier.setLng(29.1244229);
+        courier.setTimestamp(LocalDateTime.of(2020, 6, 1, 12, 30, 15, 123000000));
+        courierDTO = new CourierDTO(courier);
+        json = jsonSerializer.serialize("topic_courier", courierDTO);
+        binary = binarySerializer.serialize("topic_courier", courierDTO);
+    }
+
+    @Benchmark
+    public byte[] encodeJson(RecordSize size) {
+        byte[] data = jsonSerializer.serialize("topic_courier", courierDTO);
+        size.bytes += data.length;
+        return data;
+    }
+
+    @Benchmark
+    public byte[] encodeBinary(RecordSize size) {
+        byte[] data = binarySerializer.serialize("topic_courier", courierDTO);
+        size.bytes += data.length;
+        return data;
+    }
+
+    @Benchmark
+    public CourierDTO decodeJson() throws IOException {
+        return jsonReader.readValue(json);
+    }
+
+    @Benchmark
+    public CourierDTO decodeBinary() {
+        return binaryDeserializer.deserialize("topic_courier", binary);
+    }
+}
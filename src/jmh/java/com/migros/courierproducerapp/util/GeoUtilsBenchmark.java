@@ -0,0 +1,121 @@
+package com.migros.courierproducerapp.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the exact and approximated distance of city-scale courier tracks: a random walk through Istanbul
+ * with a ping every 5 seconds at up to 15 m/s. The error of the approximation against the exact distance
+ * is printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GeoUtilsBenchmark {
+
+    @Param({"1000", "100000"})
+    public int points;
+
+    private double[] lat;
+
+    private double[] lng;
+
+    private Double[] boxedLat;
+
+    private Double[] boxedLng;
+
+    private double[] hops;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        lat = new double[points];
+        lng = new double[points];
+        boxedLat = new Double[points];
+        boxedLng = new Double[points];
+        hops = new double[points - 1];
+        double heading = 0;
+        lat[0] = 40.9923307;
+        lng[0] = 29.1244229;
+        for (int i = 1; i < points; i++) {
+            heading += random.nextGaussian() * 0.5;
+            double meters = random.nextDouble() * 75;
+            lat[i] = lat[i - 1] + meters * Math.cos(heading) / 111320;
+            lng[i] = lng[i - 1] + meters * Math.sin(heading) / (111320 * Math.cos(Math.toRadians(lat[i - 1])));
+        }
+        for (int i = 0; i < points; i++) {
+            boxedLat[i] = lat[i];
+            boxedLng[i] = lng[i];
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void reportError() {
+        double[] exact = new double[points - 1];
+        GeoUtils.haversine(lat, lng, points, exact);
+        GeoUtils.distance(lat, lng, points, hops);
+        double maxRelativeError = 0;
+        for (int i = 0; i < exact.length; i++) {
+            if (exact[i] > 0) {
+                maxRelativeError = Math.max(maxRelativeError, Math.abs(hops[i] - exact[i]) / exact[i]);
+            }
+        }
+        double exactLength = GeoUtils.haversineLength(lat, lng, points);
+        double length = GeoUtils.length(lat, lng, points);
+        System.out.printf("%nTrack of %d points, %.1f m: max hop relative error %.3e, length error %.6f m%n",
+            points, exactLength, maxRelativeError, Math.abs(length - exactLength));
+    }
+
+    /**
+     * Per-pair haversine on boxed coordinates, the way the service used to sum a track.
+     */
+    @Benchmark
+    public double boxedHaversine() {
+        double total = 0;
+        for (int i = 1; i < points; i++) {
+            total += GeoUtils.haversine(boxedLat[i - 1], boxedLng[i - 1], boxedLat[i], boxedLng[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double haversine() {
+        double total = 0;
+        for (int i = 1; i < points; i++) {
+            total += GeoUtils.haversine(lat[i - 1], lng[i - 1], lat[i], lng[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double distance() {
+        double total = 0;
+        for (int i = 1; i < points; i++) {
+            total += GeoUtils.distance(lat[i - 1], lng[i - 1], lat[i], lng[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double[] batchHaversine() {
+        GeoUtils.haversine(lat, lng, points, hops);
+        return hops;
+    }
+
+    @Benchmark
+    public double[] batchDistance() {
+        GeoUtils.distance(lat, lng, points, hops);
+        return hops;
+    }
+}
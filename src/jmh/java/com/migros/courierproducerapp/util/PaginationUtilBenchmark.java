@@ -0,0 +1,64 @@
+package com.migros.courierproducerapp.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@code Link} headers of a page of {@code GET /api/couriers}, on the first page and on a middle
+ * page which also gets a {@code prev} link, and of the keyset links of a slice. The builder of the request URI
+ * is created on each call, as {@code ServletUriComponentsBuilder.fromCurrentRequest()} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaginationUtilBenchmark {
+
+    private static final String URI = "http://localhost:8091/api/couriers?page=0&size=20&sort=timestamp,desc";
+
+    @Param({"0", "500"})
+    public int page;
+
+    private Page<String> pageOfCouriers;
+
+    private Slice<String> slice;
+
+    private String nextCursor;
+
+    @Setup
+    public void setUp() {
+        List<String> content = new ArrayList<>(Collections.nCopies(20, "courier"));
+        PageRequest pageRequest = PageRequest.of(page, 20, Sort.by(Sort.Direction.DESC, "timestamp"));
+        pageOfCouriers = new PageImpl<>(content, pageRequest, 1000000);
+        slice = new SliceImpl<>(content, PageRequest.of(0, 20), true);
+        nextCursor = PaginationUtil.encodeCursor("5ed3b1c8e4b0a1b2c3d4e5f6");
+    }
+
+    @Benchmark
+    public HttpHeaders paginationHeaders() {
+        return PaginationUtil.generatePaginationHttpHeaders(UriComponentsBuilder.fromHttpUrl(URI), pageOfCouriers);
+    }
+
+    @Benchmark
+    public HttpHeaders keysetPaginationHeaders() {
+        return PaginationUtil.generateKeysetPaginationHttpHeaders(UriComponentsBuilder.fromHttpUrl(URI), slice, nextCursor);
+    }
+}
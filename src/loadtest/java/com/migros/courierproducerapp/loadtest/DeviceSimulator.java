@@ -0,0 +1,162 @@
+package com.migros.courierproducerapp.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Posts the pings of simulated devices to {@code POST /api/couriers} at a fixed rate.
+ * <p>
+ * The devices are shared out between the clients, each posting the next ping of its devices in turn on its own
+ * schedule. The load is open: a client late on its schedule posts right away, and the latency of a ping is measured
+ * from when it was due rather than when it was sent, so that a slow response counts for the pings it delayed too.
+ * Devices ping faster than their {@code ping-interval}, which only sets the distance between two pings on a track.
+ */
+public class DeviceSimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceSimulator.class);
+
+    private static final int TIMEOUT_MS = 10000;
+
+    private final URL endpoint;
+
+    private final LoadTestOptions options;
+
+    private final Recorder latencies = new Recorder(3);
+
+    private final LongAdder succeeded = new LongAdder();
+
+    private final ConcurrentMap<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    private final List<Thread> clients = new ArrayList<>();
+
+    private volatile boolean running;
+
+    public DeviceSimulator(URL endpoint, LoadTestOptions options) {
+        this.endpoint = endpoint;
+        this.options = options;
+    }
+
+    public void start() {
+        running = true;
+        int threads = options.getThreads();
+        long periodNanos = TimeUnit.SECONDS.toNanos(threads) / options.getRate();
+        double pingIntervalSeconds = options.getPingInterval().toMillis() / 1000.0;
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            Random random = new Random(options.getSeed() + i);
+            List<SimulatedDevice> devices = new ArrayList<>();
+            for (int device = i; device < options.getDevices(); device += threads) {
+                devices.add(new SimulatedDevice("courier-" + device, random, pingIntervalSeconds));
+            }
+            long clientStart = start + periodNanos * i / threads;
+            Thread client = new Thread(() -> post(devices, clientStart, periodNanos), "device-client-" + i);
+            client.setDaemon(true);
+            client.start();
+            clients.add(client);
+        }
+    }
+
+    private void post(List<SimulatedDevice> devices, long start, long periodNanos) {
+        for (long ping = 0; running; ping++) {
+            long due = start + ping * periodNanos;
+            for (long wait = due - System.nanoTime(); wait > 0 && running; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            byte[] body = devices.get((int) (ping % devices.size())).nextPing();
+            String outcome;
+            try {
+                int status = post(body);
+                outcome = status >= 200 && status < 300 ? null : String.valueOf(status);
+            } catch (IOException e) {
+                outcome = e.getClass().getSimpleName();
+            }
+            latencies.recordValue(System.nanoTime() - due);
+            if (outcome == null) {
+                succeeded.increment();
+            } else {
+                failures.computeIfAbsent(outcome, key -> {
+                    log.warn("Pings are failing with {}", key);
+                    return new LongAdder();
+                }).increment();
+            }
+        }
+    }
+
+    private int post(byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setConnectTimeout(TIMEOUT_MS);
+        connection.setReadTimeout(TIMEOUT_MS);
+        connection.setRequestProperty("Content-Type", "application/json");
+        // The body is buffered rather than streamed, to be sent with the headers instead of waiting on a delayed ACK
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        int status = connection.getResponseCode();
+        // The response is read to the end for the connection to be kept alive
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null) {
+                byte[] buffer = new byte[4096];
+                while (in.read(buffer) >= 0) {
+                    // drained
+                }
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Starts a new measurement, dropping the latencies and outcomes recorded so far.
+     */
+    public void reset() {
+        latencies.reset();
+        succeeded.reset();
+        failures.clear();
+    }
+
+    /**
+     * @return the latencies, in nanoseconds, since the last call or reset.
+     */
+    public Histogram getLatencies() {
+        return latencies.getIntervalHistogram();
+    }
+
+    public long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    /**
+     * @return the failed pings by HTTP status or exception.
+     */
+    public Map<String, Long> getFailures() {
+        Map<String, Long> result = new TreeMap<>();
+        failures.forEach((outcome, count) -> result.put(outcome, count.sum()));
+        return result;
+    }
+
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread client : clients) {
+            client.join(TIMEOUT_MS);
+        }
+    }
+}
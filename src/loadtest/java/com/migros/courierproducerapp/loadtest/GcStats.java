@@ -0,0 +1,136 @@
+package com.migros.courierproducerapp.loadtest;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.OperatingSystemMXBean;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Garbage collections and CPU of this JVM over a measurement.
+ * <p>
+ * Collections are counted from the collector beans, and followed through their notifications for the longest one,
+ * the heap left after the last one and the bytes they reclaimed, which approximates the allocation rate over a run
+ * long enough for the heap to be back to its size. Durations of concurrent collectors include their concurrent
+ * phases.
+ */
+public class GcStats implements NotificationListener {
+
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+    private final Set<String> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP)
+        .map(MemoryPoolMXBean::getName)
+        .collect(Collectors.toSet());
+
+    private final Map<String, long[]> initial = new LinkedHashMap<>();
+
+    private final AtomicLong longestMs = new AtomicLong();
+
+    private final LongAdder reclaimedBytes = new LongAdder();
+
+    private volatile long heapAfterGcBytes;
+
+    private long startNanos;
+
+    private long startCpuNanos;
+
+    /**
+     * Starts a measurement.
+     */
+    public void start() {
+        initial.clear();
+        for (GarbageCollectorMXBean collector : collectors) {
+            initial.put(collector.getName(), new long[]{collector.getCollectionCount(), collector.getCollectionTime()});
+            if (collector instanceof NotificationEmitter) {
+                ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+            }
+        }
+        startNanos = System.nanoTime();
+        startCpuNanos = processCpuNanos();
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        longestMs.accumulateAndGet(info.getGcInfo().getDuration(), Math::max);
+        long before = heapUsed(info.getGcInfo().getMemoryUsageBeforeGc());
+        long after = heapUsed(info.getGcInfo().getMemoryUsageAfterGc());
+        reclaimedBytes.add(Math.max(0, before - after));
+        heapAfterGcBytes = after;
+    }
+
+    private long heapUsed(Map<String, MemoryUsage> usageByPool) {
+        long used = 0;
+        for (Map.Entry<String, MemoryUsage> usage : usageByPool.entrySet()) {
+            if (heapPools.contains(usage.getKey())) {
+                used += usage.getValue().getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Ends the measurement.
+     *
+     * @return the statistics, by collector and in total.
+     */
+    public Map<String, Object> stop() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        double cpuSeconds = (processCpuNanos() - startCpuNanos) / 1e9;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long totalCount = 0;
+        long totalMs = 0;
+        Map<String, Object> byCollector = new LinkedHashMap<>();
+        for (GarbageCollectorMXBean collector : collectors) {
+            if (collector instanceof NotificationEmitter) {
+                try {
+                    ((NotificationEmitter) collector).removeNotificationListener(this);
+                } catch (ListenerNotFoundException e) {
+                    // not started
+                }
+            }
+            long[] start = initial.getOrDefault(collector.getName(), new long[2]);
+            long count = collector.getCollectionCount() - start[0];
+            long ms = collector.getCollectionTime() - start[1];
+            Map<String, Object> stat = new LinkedHashMap<>();
+            stat.put("collections", count);
+            stat.put("timeMs", ms);
+            byCollector.put(collector.getName(), stat);
+            totalCount += count;
+            totalMs += ms;
+        }
+        stats.put("collections", totalCount);
+        stats.put("timeMs", totalMs);
+        stats.put("timeRatio", totalMs / 1000.0 / seconds);
+        stats.put("longestMs", longestMs.get());
+        stats.put("heapAfterGcMb", heapAfterGcBytes / (1024.0 * 1024));
+        stats.put("allocationMbPerSecond", reclaimedBytes.sum() / (1024.0 * 1024) / seconds);
+        stats.put("cpuCores", cpuSeconds / seconds);
+        stats.put("collectors", byCollector);
+        return stats;
+    }
+
+    private static long processCpuNanos() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        return os instanceof OperatingSystemMXBean ? ((OperatingSystemMXBean) os).getProcessCpuTime() : 0;
+    }
+}
@@ -0,0 +1,158 @@
+package com.migros.courierproducerapp.loadtest;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory stand-in of the Kafka producer, so that the load test measures the application rather than a broker.
+ * <p>
+ * Records are assigned a partition and an offset, counted and dropped. They are acknowledged on the calling thread,
+ * or after the given latency to mimic the round trip to the brokers, which keeps the pending records of
+ * {@code CourierKafkaService} in use as in production. Unlike {@code MockProducer}, no history is kept and sends
+ * don't contend on a lock.
+ */
+public class InMemoryKafkaProducer implements Producer<String, byte[]> {
+
+    private final int partitions;
+
+    private final long ackLatencyNanos;
+
+    private final AtomicLongArray offsets;
+
+    private final LongAdder records = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final ScheduledExecutorService acknowledger;
+
+    public InMemoryKafkaProducer(int partitions, Duration ackLatency) {
+        this.partitions = partitions;
+        this.ackLatencyNanos = ackLatency.toNanos();
+        this.offsets = new AtomicLongArray(partitions);
+        if (ackLatencyNanos > 0) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, daemonThreadFactory());
+            executor.setRemoveOnCancelPolicy(true);
+            this.acknowledger = executor;
+        } else {
+            this.acknowledger = null;
+        }
+    }
+
+    private static CustomizableThreadFactory daemonThreadFactory() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("kafka-stand-in-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    public long getRecords() {
+        return records.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public Future<RecordMetadata> send(ProducerRecord<String, byte[]> record) {
+        return send(record, null);
+    }
+
+    @Override
+    public Future<RecordMetadata> send(ProducerRecord<String, byte[]> record, Callback callback) {
+        byte[] key = record.key() == null ? null : record.key().getBytes(StandardCharsets.UTF_8);
+        int partition = record.partition() != null ? record.partition()
+            : key == null ? 0 : Utils.toPositive(Utils.murmur2(key)) % partitions;
+        int valueSize = record.value() == null ? 0 : record.value().length;
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition(record.topic(), partition), 0,
+            offsets.getAndIncrement(partition), System.currentTimeMillis(), null,
+            key == null ? -1 : key.length, valueSize);
+        records.increment();
+        bytes.add(valueSize);
+        CompletableFuture<RecordMetadata> future = new CompletableFuture<>();
+        Runnable acknowledge = () -> {
+            future.complete(metadata);
+            if (callback != null) {
+                callback.onCompletion(metadata, null);
+            }
+        };
+        if (acknowledger == null) {
+            acknowledge.run();
+        } else {
+            acknowledger.schedule(acknowledge, ackLatencyNanos, TimeUnit.NANOSECONDS);
+        }
+        return future;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public List<PartitionInfo> partitionsFor(String topic) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Map<MetricName, ? extends Metric> metrics() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void close() {
+        close(Duration.ZERO);
+    }
+
+    @Override
+    public void close(Duration timeout) {
+        if (acknowledger != null) {
+            acknowledger.shutdown();
+        }
+    }
+
+    @Override
+    public void initTransactions() {
+        throw new UnsupportedOperationException("Transactions are not supported by the stand-in");
+    }
+
+    @Override
+    public void beginTransaction() {
+        throw new UnsupportedOperationException("Transactions are not supported by the stand-in");
+    }
+
+    @Override
+    public void sendOffsetsToTransaction(Map<TopicPartition, OffsetAndMetadata> offsets, String consumerGroupId) {
+        throw new UnsupportedOperationException("Transactions are not supported by the stand-in");
+    }
+
+    @Override
+    public void commitTransaction() {
+        throw new UnsupportedOperationException("Transactions are not supported by the stand-in");
+    }
+
+    @Override
+    public void abortTransaction() {
+        throw new UnsupportedOperationException("Transactions are not supported by the stand-in");
+    }
+}
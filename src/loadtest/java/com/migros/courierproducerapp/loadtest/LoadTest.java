@@ -0,0 +1,144 @@
+package com.migros.courierproducerapp.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.migros.courierproducerapp.CourierProducerApplication;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test of {@code POST /api/couriers}, see {@link LoadTestOptions} for its options.
+ * <p>
+ * Unless a target is given, the application is started in this JVM with the {@code loadtest} profile, on an
+ * embedded Mongo and with the {@link InMemoryKafkaProducer}, so that the whole ingest path but the brokers is
+ * exercised without any external service. After the warmup, the {@link DeviceSimulator} is measured for the
+ * duration, and the throughput, latencies, GC and CPU statistics are printed and written to the report directory:
+ * {@code summary.json}, and {@code latency.hgrm}, the percentile distribution in milliseconds, which can be
+ * plotted with the HdrHistogram plotter.
+ */
+public final class LoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    public static final String SPRING_PROFILE_LOADTEST = "loadtest";
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        // HttpURLConnection keeps 5 idle connections by default, one per client avoids reconnecting
+        System.setProperty("http.maxConnections", String.valueOf(options.getThreads()));
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.getTarget();
+        if (baseUrl == null) {
+            context = new SpringApplicationBuilder(CourierProducerApplication.class)
+                .initializers((ConfigurableApplicationContext applicationContext) -> {
+                    int partitions = applicationContext.getEnvironment()
+                        .getProperty("kafka.courier-topic.partitions", Integer.class, 12);
+                    applicationContext.getBeanFactory().registerSingleton("inMemoryKafkaProducer",
+                        new InMemoryKafkaProducer(partitions, options.getKafkaAckLatency()));
+                })
+                .run("--spring.profiles.active=" + SPRING_PROFILE_LOADTEST,
+                    "--spring.mongodb.embedded.version=" + options.getMongoVersion());
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            Map<String, Object> summary = run(new URL(baseUrl + "/api/couriers"), options);
+            if (context != null) {
+                InMemoryKafkaProducer producer = context.getBean(InMemoryKafkaProducer.class);
+                Map<String, Object> kafka = new LinkedHashMap<>();
+                kafka.put("records", producer.getRecords());
+                kafka.put("bytes", producer.getBytes());
+                summary.put("kafka", kafka);
+            }
+            print(summary);
+            write(summary, options);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static Map<String, Object> run(URL endpoint, LoadTestOptions options) throws InterruptedException {
+        log.info("Posting {} pings per second of {} devices from {} clients to {}, warming up for {}s",
+            options.getRate(), options.getDevices(), options.getThreads(), endpoint, options.getWarmup().getSeconds());
+        DeviceSimulator simulator = new DeviceSimulator(endpoint, options);
+        GcStats gcStats = new GcStats();
+        simulator.start();
+        Thread.sleep(options.getWarmup().toMillis());
+        log.info("Measuring for {}s", options.getDuration().getSeconds());
+        simulator.reset();
+        gcStats.start();
+        long start = System.nanoTime();
+        Thread.sleep(options.getDuration().toMillis());
+        Histogram latencies = simulator.getLatencies();
+        long succeeded = simulator.getSucceeded();
+        Map<String, Long> failures = simulator.getFailures();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Map<String, Object> gc = gcStats.stop();
+        simulator.stop();
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("endpoint", endpoint.toString());
+        summary.put("rate", options.getRate());
+        summary.put("devices", options.getDevices());
+        summary.put("threads", options.getThreads());
+        summary.put("seconds", seconds);
+        summary.put("succeeded", succeeded);
+        summary.put("failed", failures);
+        summary.put("throughput", (succeeded + failures.values().stream().mapToLong(Long::longValue).sum()) / seconds);
+        Map<String, Object> latencyMs = new LinkedHashMap<>();
+        latencyMs.put("p50", percentileMs(latencies, 50));
+        latencyMs.put("p90", percentileMs(latencies, 90));
+        latencyMs.put("p99", percentileMs(latencies, 99));
+        latencyMs.put("p999", percentileMs(latencies, 99.9));
+        latencyMs.put("max", latencies.getMaxValue() / 1e6);
+        latencyMs.put("mean", latencies.getMean() / 1e6);
+        summary.put("latencyMs", latencyMs);
+        summary.put("gc", gc);
+        summary.put("histogram", latencies);
+        return summary;
+    }
+
+    private static double percentileMs(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    private static void print(Map<String, Object> summary) {
+        System.out.println();
+        System.out.printf("Throughput: %.1f pings/s (target %s), %s succeeded, failed: %s%n",
+            summary.get("throughput"), summary.get("rate"), summary.get("succeeded"), summary.get("failed"));
+        System.out.println("Latency (ms): " + summary.get("latencyMs"));
+        System.out.println("GC: " + summary.get("gc"));
+        if (summary.containsKey("kafka")) {
+            System.out.println("Kafka stand-in: " + summary.get("kafka"));
+        }
+        System.out.println();
+    }
+
+    private static void write(Map<String, Object> summary, LoadTestOptions options) throws IOException {
+        File directory = new File(options.getReportDirectory());
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        Histogram latencies = (Histogram) summary.remove("histogram");
+        try (PrintStream out = new PrintStream(new FileOutputStream(new File(directory, "latency.hgrm")), false, "UTF-8")) {
+            latencies.outputPercentileDistribution(out, 1e6);
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(new File(directory, "summary.json"), summary);
+        log.info("Report written to {}", directory.getAbsolutePath());
+    }
+}
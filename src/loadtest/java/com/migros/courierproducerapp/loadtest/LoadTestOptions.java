@@ -0,0 +1,148 @@
+package com.migros.courierproducerapp.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+
+/**
+ * Options of the load test, given as {@code --name=value} arguments, durations in the format of the Spring Boot
+ * properties such as {@code 60s}.
+ * <ul>
+ * <li>{@code rate}: pings posted per second, whatever the response times, 2000 by default.</li>
+ * <li>{@code devices}: simulated couriers, 1000 by default.</li>
+ * <li>{@code threads}: HTTP clients, each posting for a share of the devices, 64 by default. Too few clients
+ * for the rate and the response times show as a lower throughput and higher latencies.</li>
+ * <li>{@code ping-interval}: time between two pings of a device on its track, 5s by default.</li>
+ * <li>{@code warmup}: run before the measurement, 20s by default.</li>
+ * <li>{@code duration}: measurement, 60s by default.</li>
+ * <li>{@code kafka-ack-latency}: acknowledgement delay of the Kafka stand-in, 2ms by default.</li>
+ * <li>{@code mongo-version}: version of the embedded Mongo, 4.0.2 by default.</li>
+ * <li>{@code target}: base URL of a running instance to load instead of the in-process application, in which
+ * case the GC statistics are the ones of the load test only.</li>
+ * <li>{@code report-directory}: where the report is written, {@code build/reports/loadtest} by default.</li>
+ * <li>{@code seed}: seed of the tracks, 42 by default.</li>
+ * </ul>
+ */
+public class LoadTestOptions {
+
+    private int rate = 2000;
+
+    private int devices = 1000;
+
+    private int threads = 64;
+
+    private Duration pingInterval = Duration.ofSeconds(5);
+
+    private Duration warmup = Duration.ofSeconds(20);
+
+    private Duration duration = Duration.ofSeconds(60);
+
+    private Duration kafkaAckLatency = Duration.ofMillis(2);
+
+    private String mongoVersion = "4.0.2";
+
+    private String target;
+
+    private String reportDirectory = "build/reports/loadtest";
+
+    private long seed = 42;
+
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            options.set(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        if (options.rate < 1 || options.devices < 1 || options.threads < 1 || options.devices < options.threads) {
+            throw new IllegalArgumentException("Rate, devices and threads must be positive, with at least one device per thread");
+        }
+        return options;
+    }
+
+    private void set(String name, String value) {
+        switch (name) {
+            case "rate":
+                rate = Integer.parseInt(value);
+                break;
+            case "devices":
+                devices = Integer.parseInt(value);
+                break;
+            case "threads":
+                threads = Integer.parseInt(value);
+                break;
+            case "ping-interval":
+                pingInterval = DurationStyle.detectAndParse(value);
+                break;
+            case "warmup":
+                warmup = DurationStyle.detectAndParse(value);
+                break;
+            case "duration":
+                duration = DurationStyle.detectAndParse(value);
+                break;
+            case "kafka-ack-latency":
+                kafkaAckLatency = DurationStyle.detectAndParse(value);
+                break;
+            case "mongo-version":
+                mongoVersion = value;
+                break;
+            case "target":
+                target = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                break;
+            case "report-directory":
+                reportDirectory = value;
+                break;
+            case "seed":
+                seed = Long.parseLong(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + name);
+        }
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public int getDevices() {
+        return devices;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public Duration getPingInterval() {
+        return pingInterval;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Duration getKafkaAckLatency() {
+        return kafkaAckLatency;
+    }
+
+    public String getMongoVersion() {
+        return mongoVersion;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public String getReportDirectory() {
+        return reportDirectory;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
@@ -0,0 +1,79 @@
+package com.migros.courierproducerapp.loadtest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Device of a courier driving around Istanbul: a random walk at scooter speeds, with stops at stores and
+ * customers, reported with a few meters of GPS noise. Not thread-safe, a device is driven by a single client.
+ */
+class SimulatedDevice {
+
+    private static final double METERS_PER_DEGREE = 111320;
+
+    private static final double MIN_LAT = 40.95;
+
+    private static final double MAX_LAT = 41.10;
+
+    private static final double MIN_LNG = 28.80;
+
+    private static final double MAX_LNG = 29.20;
+
+    private final String courierID;
+
+    private final Random random;
+
+    private final double pingIntervalSeconds;
+
+    private double lat;
+
+    private double lng;
+
+    private double heading;
+
+    private int stoppedPings;
+
+    SimulatedDevice(String courierID, Random random, double pingIntervalSeconds) {
+        this.courierID = courierID;
+        this.random = random;
+        this.pingIntervalSeconds = pingIntervalSeconds;
+        this.lat = MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT);
+        this.lng = MIN_LNG + random.nextDouble() * (MAX_LNG - MIN_LNG);
+        this.heading = random.nextDouble() * 2 * Math.PI;
+    }
+
+    /**
+     * Moves the device to its next position.
+     *
+     * @return the body of the ping at the new position.
+     */
+    byte[] nextPing() {
+        move();
+        double noisyLat = lat + random.nextGaussian() * 4 / METERS_PER_DEGREE;
+        double noisyLng = lng + random.nextGaussian() * 4 / (METERS_PER_DEGREE * Math.cos(Math.toRadians(lat)));
+        return ("{\"courierID\":\"" + courierID + "\",\"lat\":" + noisyLat + ",\"lng\":" + noisyLng + "}")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void move() {
+        if (stoppedPings > 0) {
+            stoppedPings--;
+            return;
+        }
+        if (random.nextDouble() < 0.02) {
+            stoppedPings = 6 + random.nextInt(60);
+            return;
+        }
+        heading += random.nextGaussian() * 0.35;
+        double speed = Math.max(0, Math.min(16, 8 + random.nextGaussian() * 3));
+        double meters = speed * pingIntervalSeconds;
+        double nextLat = lat + meters * Math.cos(heading) / METERS_PER_DEGREE;
+        double nextLng = lng + meters * Math.sin(heading) / (METERS_PER_DEGREE * Math.cos(Math.toRadians(lat)));
+        if (nextLat < MIN_LAT || nextLat > MAX_LAT || nextLng < MIN_LNG || nextLng > MAX_LNG) {
+            heading += Math.PI;
+            return;
+        }
+        lat = nextLat;
+        lng = nextLng;
+    }
+}
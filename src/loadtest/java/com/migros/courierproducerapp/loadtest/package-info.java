@@ -0,0 +1,4 @@
+/**
+ * End-to-end load test of the ingest path, with its device simulator and Kafka stand-in.
+ */
+package com.migros.courierproducerapp.loadtest;
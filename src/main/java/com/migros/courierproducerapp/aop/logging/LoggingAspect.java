@@ -1,5 +1,6 @@
 package com.migros.courierproducerapp.aop.logging;
 
+import com.migros.courierproducerapp.config.ApplicationProperties;
 import com.migros.courierproducerapp.config.ProfileConstants;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -7,23 +8,58 @@ import org.aspectj.lang.annotation.AfterThrowing;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.Profiles;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
+import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * logging execution of service and repository components.
+ * <p>
+ * The logger, the name and the sampling rate of a traced method are resolved on its first call and cached.
+ * Arguments and results are only formatted for sampled calls logged at debug level, on a background thread
+ * with {@code application.tracing.async}. In the {@code timings} mode, calls are only counted and timed.
  */
 @Aspect
 public class LoggingAspect {
 
-  private final Environment env;
+  private final boolean development;
 
-  public LoggingAspect(Environment env) {
-    this.env = env;
+  private final ApplicationProperties.Tracing tracing;
+
+  private final Map<Method, MethodTrace> methodTraces = new ConcurrentHashMap<>();
+
+  private final TraceEmitter emitter;
+
+  private final ScheduledExecutorService timingsReporter;
+
+  public LoggingAspect(Environment env, ApplicationProperties applicationProperties) {
+    this.development = env.acceptsProfiles(Profiles.of(ProfileConstants.SPRING_PROFILE_DEVELOPMENT));
+    this.tracing = applicationProperties.getTracing();
+    this.emitter = tracing.getMode() == ApplicationProperties.Tracing.Mode.FULL && tracing.isAsync()
+        ? new TraceEmitter(tracing.getBufferSize()) : null;
+    if (tracing.getMode() == ApplicationProperties.Tracing.Mode.TIMINGS) {
+      CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("trace-timings-");
+      threadFactory.setDaemon(true);
+      long interval = tracing.getTimingsInterval().toMillis();
+      timingsReporter = Executors.newSingleThreadScheduledExecutor(threadFactory);
+      timingsReporter.scheduleAtFixedRate(this::reportTimings, interval, interval, TimeUnit.MILLISECONDS);
+    } else {
+      timingsReporter = null;
+    }
   }
 
   /**
@@ -46,13 +82,29 @@ public class LoggingAspect {
   }
 
   /**
-   * Retrieves the {@link Logger} associated to the given {@link JoinPoint}.
+   * Retrieves the cached {@link MethodTrace} of the method of the given {@link JoinPoint}.
    *
-   * @param joinPoint join point we want the logger for.
-   * @return {@link Logger} associated to the given {@link JoinPoint}.
+   * @param joinPoint join point we want the trace for.
+   * @return {@link MethodTrace} of the method.
    */
-  private Logger logger(JoinPoint joinPoint) {
-    return LoggerFactory.getLogger(joinPoint.getSignature().getDeclaringTypeName());
+  private MethodTrace methodTrace(JoinPoint joinPoint) {
+    Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+    MethodTrace methodTrace = methodTraces.get(method);
+    if (methodTrace == null) {
+      methodTrace = methodTraces.computeIfAbsent(method, key -> new MethodTrace(joinPoint.getSignature().getDeclaringTypeName(),
+          key.getName(), samplingRate(joinPoint.getSignature().getDeclaringTypeName())));
+    }
+    return methodTrace;
+  }
+
+  private double samplingRate(String typeName) {
+    String match = null;
+    for (String name : tracing.getSamplingRates().keySet()) {
+      if ((typeName.equals(name) || typeName.startsWith(name + ".")) && (match == null || name.length() > match.length())) {
+        match = name;
+      }
+    }
+    return match == null ? tracing.getSamplingRate() : tracing.getSamplingRates().get(match);
   }
 
   /**
@@ -63,17 +115,18 @@ public class LoggingAspect {
    */
   @AfterThrowing(pointcut = "applicationPackagePointcut() && springBeanPointcut()", throwing = "e")
   public void logAfterThrowing(JoinPoint joinPoint, Throwable e) {
-    if (env.acceptsProfiles(Profiles.of(ProfileConstants.SPRING_PROFILE_DEVELOPMENT))) {
-      logger(joinPoint).error("Exception in {}() with cause = \'{}\' and exception = \'{}\'",
+    Logger log = methodTrace(joinPoint).logger;
+    if (development) {
+      log.error("Exception in {}() with cause = \'{}\' and exception = \'{}\'",
           joinPoint.getSignature().getName(), e.getCause() != null ? e.getCause() : "NULL", e.getMessage(), e);
     } else {
-      logger(joinPoint).error("Exception in {}() with cause = {}", joinPoint.getSignature().getName(),
+      log.error("Exception in {}() with cause = {}", joinPoint.getSignature().getName(),
           e.getCause() != null ? e.getCause() : "NULL");
     }
   }
 
   /**
-   * Advice that logs when a method is entered and exited.
+   * Advice that logs when a method is entered and exited, or records its duration.
    *
    * @param joinPoint join point for advice.
    * @return result.
@@ -81,21 +134,121 @@ public class LoggingAspect {
    */
   @Around("applicationPackagePointcut() && springBeanPointcut()")
   public Object logAround(ProceedingJoinPoint joinPoint) throws Throwable {
-    Logger log = logger(joinPoint);
-    if (log.isDebugEnabled()) {
-      log.debug("Enter: {}() with argument[s] = {}", joinPoint.getSignature().getName(),
-          Arrays.toString(joinPoint.getArgs()));
+    if (tracing.getMode() == ApplicationProperties.Tracing.Mode.OFF) {
+      return joinPoint.proceed();
+    }
+    MethodTrace methodTrace = methodTrace(joinPoint);
+    if (tracing.getMode() == ApplicationProperties.Tracing.Mode.TIMINGS) {
+      if (!methodTrace.sampled()) {
+        return joinPoint.proceed();
+      }
+      long start = System.nanoTime();
+      try {
+        return joinPoint.proceed();
+      } finally {
+        methodTrace.record(System.nanoTime() - start);
+      }
+    }
+    Logger log = methodTrace.logger;
+    boolean traced = log.isDebugEnabled() && methodTrace.sampled();
+    if (traced) {
+      debug(log, "Enter: {}() with argument[s] = {}", methodTrace.methodName, new Arguments(joinPoint.getArgs()));
     }
     try {
       Object result = joinPoint.proceed();
-      if (log.isDebugEnabled()) {
-        log.debug("Exit: {}() with result = {}", joinPoint.getSignature().getName(), result);
+      if (traced) {
+        debug(log, "Exit: {}() with result = {}", methodTrace.methodName, result);
       }
       return result;
     } catch (IllegalArgumentException e) {
-      log.error("Illegal argument: {} in {}()", Arrays.toString(joinPoint.getArgs()),
-          joinPoint.getSignature().getName());
+      log.error("Illegal argument: {} in {}()", Arrays.toString(joinPoint.getArgs()), methodTrace.methodName);
       throw e;
     }
   }
+
+  /**
+   * Write the pending trace logs and stop the background threads.
+   */
+  public void close() {
+    if (emitter != null) {
+      emitter.close();
+    }
+    if (timingsReporter != null) {
+      timingsReporter.shutdownNow();
+      reportTimings();
+    }
+  }
+
+  private void debug(Logger log, String format, Object first, Object second) {
+    if (emitter != null) {
+      emitter.debug(log, format, first, second);
+    } else {
+      log.debug(format, first, second);
+    }
+  }
+
+  private void reportTimings() {
+    methodTraces.values().forEach(MethodTrace::report);
+  }
+
+  /**
+   * Arguments of a call, formatted only when the log is written.
+   */
+  private static final class Arguments {
+
+    private final Object[] args;
+
+    private Arguments(Object[] args) {
+      this.args = args;
+    }
+
+    @Override
+    public String toString() {
+      return Arrays.toString(args);
+    }
+  }
+
+  /**
+   * Resolved logger, name and sampling rate of a traced method, with its timings.
+   */
+  private static final class MethodTrace {
+
+    private final Logger logger;
+
+    private final String methodName;
+
+    private final double samplingRate;
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    private MethodTrace(String typeName, String methodName, double samplingRate) {
+      this.logger = LoggerFactory.getLogger(typeName);
+      this.methodName = methodName;
+      this.samplingRate = samplingRate;
+    }
+
+    private boolean sampled() {
+      return samplingRate >= 1 || (samplingRate > 0 && ThreadLocalRandom.current().nextDouble() < samplingRate);
+    }
+
+    private void record(long nanos) {
+      calls.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulate(nanos);
+    }
+
+    private void report() {
+      long count = calls.sumThenReset();
+      long total = totalNanos.sumThenReset();
+      long max = maxNanos.getThenReset();
+      if (count > 0) {
+        logger.info("Timings: {}() sampled calls = {}, mean = {} us, max = {} us", methodName, count,
+            TimeUnit.NANOSECONDS.toMicros(total / count), TimeUnit.NANOSECONDS.toMicros(max));
+      }
+    }
+  }
 }
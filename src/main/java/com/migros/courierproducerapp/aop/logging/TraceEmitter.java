@@ -0,0 +1,105 @@
+package com.migros.courierproducerapp.aop.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes trace logs on a background thread, so that the traced thread neither formats nor writes them.
+ * <p>
+ * Logs wait in a bounded ring buffer. When it is full, new logs are dropped rather than blocking the traced
+ * thread, and the number of dropped logs is reported once the buffer drains. Arguments are formatted on the
+ * background thread, so a log shows its arguments as they are when it is written.
+ */
+public class TraceEmitter {
+
+  private final Logger log = LoggerFactory.getLogger(TraceEmitter.class);
+
+  private final BlockingQueue<Trace> buffer;
+
+  private final AtomicLong dropped = new AtomicLong();
+
+  private final Thread thread;
+
+  private volatile boolean running = true;
+
+  public TraceEmitter(int bufferSize) {
+    this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    this.thread = new Thread(this::run, "trace-emitter");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Queue a debug log, or drop it if the buffer is full.
+   *
+   * @param logger the logger.
+   * @param format the message format.
+   * @param first  the first argument.
+   * @param second the second argument.
+   */
+  public void debug(Logger logger, String format, Object first, Object second) {
+    if (!buffer.offer(new Trace(logger, format, first, second))) {
+      dropped.incrementAndGet();
+    }
+  }
+
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /**
+   * Write the queued logs and stop.
+   */
+  public void close() {
+    running = false;
+    try {
+      thread.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    long reported = 0;
+    while (running || !buffer.isEmpty()) {
+      try {
+        Trace trace = buffer.poll(100, TimeUnit.MILLISECONDS);
+        if (trace != null) {
+          trace.logger.debug(trace.format, trace.first, trace.second);
+        } else if (dropped.get() > reported) {
+          long total = dropped.get();
+          log.warn("{} trace logs dropped, the trace buffer was full", total - reported);
+          reported = total;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        log.warn("Could not write a trace log: {}", e.getMessage());
+      }
+    }
+  }
+
+  private static final class Trace {
+
+    private final Logger logger;
+
+    private final String format;
+
+    private final Object first;
+
+    private final Object second;
+
+    private Trace(Logger logger, String format, Object first, Object second) {
+      this.logger = logger;
+      this.format = format;
+      this.first = first;
+      this.second = second;
+    }
+  }
+}
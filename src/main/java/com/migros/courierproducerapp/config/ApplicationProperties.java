@@ -2,6 +2,10 @@ package com.migros.courierproducerapp.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Properties specific to Userservice.
  * <p>
@@ -9,4 +13,627 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
+
+    private final Ingest ingest = new Ingest();
+
+    private final Database database = new Database();
+
+    private final Geo geo = new Geo();
+
+    private final StoreEntrance storeEntrance = new StoreEntrance();
+
+    private final Execution execution = new Execution();
+
+    private final Outbox outbox = new Outbox();
+
+    private final Feed feed = new Feed();
+
+    private final Export export = new Export();
+
+    private final Tracing tracing = new Tracing();
+
+    private final ServerTiming serverTiming = new ServerTiming();
+
+    public Ingest getIngest() {
+        return ingest;
+    }
+
+    public Database getDatabase() {
+        return database;
+    }
+
+    public Geo getGeo() {
+        return geo;
+    }
+
+    public StoreEntrance getStoreEntrance() {
+        return storeEntrance;
+    }
+
+    public Execution getExecution() {
+        return execution;
+    }
+
+    public Outbox getOutbox() {
+        return outbox;
+    }
+
+    public Feed getFeed() {
+        return feed;
+    }
+
+    public Export getExport() {
+        return export;
+    }
+
+    public Tracing getTracing() {
+        return tracing;
+    }
+
+    public ServerTiming getServerTiming() {
+        return serverTiming;
+    }
+
+    public static class Ingest {
+
+        /**
+         * Maximum number of location pings accepted by a single batch request.
+         */
+        private int batchMaxSize = 1000;
+
+        private final WriteBehind writeBehind = new WriteBehind();
+
+        public int getBatchMaxSize() {
+            return batchMaxSize;
+        }
+
+        public void setBatchMaxSize(int batchMaxSize) {
+            this.batchMaxSize = batchMaxSize;
+        }
+
+        public WriteBehind getWriteBehind() {
+            return writeBehind;
+        }
+    }
+
+    public static class WriteBehind {
+
+        /**
+         * Accept new pings into a journaled in-process queue and answer {@code 202 (Accepted)} before they are
+         * written to Mongo and Kafka.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of accepted pings not written yet, new pings are written synchronously beyond it.
+         */
+        private int capacity = 65536;
+
+        /**
+         * Number of threads writing the accepted pings, the pings of a courier are always written by the same one.
+         */
+        private int workers = 2;
+
+        /**
+         * Maximum number of pings written with one bulk insert.
+         */
+        private int batchSize = 1000;
+
+        /**
+         * Directory of the journal of the accepted pings.
+         */
+        private String journalDirectory = "data/courier-journal";
+
+        /**
+         * Size from which a new journal segment is started.
+         */
+        private long journalSegmentBytes = 16 * 1024 * 1024;
+
+        /**
+         * Interval at which the journal is forced to the disk, appends in between only survive a crash of the process.
+         */
+        private Duration journalSyncInterval = Duration.ofSeconds(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public String getJournalDirectory() {
+            return journalDirectory;
+        }
+
+        public void setJournalDirectory(String journalDirectory) {
+            this.journalDirectory = journalDirectory;
+        }
+
+        public long getJournalSegmentBytes() {
+            return journalSegmentBytes;
+        }
+
+        public void setJournalSegmentBytes(long journalSegmentBytes) {
+            this.journalSegmentBytes = journalSegmentBytes;
+        }
+
+        public Duration getJournalSyncInterval() {
+            return journalSyncInterval;
+        }
+
+        public void setJournalSyncInterval(Duration journalSyncInterval) {
+            this.journalSyncInterval = journalSyncInterval;
+        }
+    }
+
+    public static class Database {
+
+        /**
+         * How long pings are kept before the TTL index removes them, no expiry when empty.
+         * Expired pings are no longer part of the history used to rebuild the courier stats.
+         */
+        private Duration courierRetention;
+
+        /**
+         * Log the query plan of the courier track query at startup.
+         */
+        private boolean explainOnStartup = true;
+
+        public Duration getCourierRetention() {
+            return courierRetention;
+        }
+
+        public void setCourierRetention(Duration courierRetention) {
+            this.courierRetention = courierRetention;
+        }
+
+        public boolean isExplainOnStartup() {
+            return explainOnStartup;
+        }
+
+        public void setExplainOnStartup(boolean explainOnStartup) {
+            this.explainOnStartup = explainOnStartup;
+        }
+    }
+
+    public static class Geo {
+
+        /**
+         * Size of the cells of the in-memory spatial index of courier locations.
+         */
+        private double cellSizeMeters = 250;
+
+        /**
+         * Largest radius accepted by a proximity query.
+         */
+        private double maxRadiusMeters = 20000;
+
+        /**
+         * Queries covering more cells of the in-memory index are answered by Mongo instead.
+         */
+        private long maxIndexCells = 4096;
+
+        public double getCellSizeMeters() {
+            return cellSizeMeters;
+        }
+
+        public void setCellSizeMeters(double cellSizeMeters) {
+            this.cellSizeMeters = cellSizeMeters;
+        }
+
+        public double getMaxRadiusMeters() {
+            return maxRadiusMeters;
+        }
+
+        public void setMaxRadiusMeters(double maxRadiusMeters) {
+            this.maxRadiusMeters = maxRadiusMeters;
+        }
+
+        public long getMaxIndexCells() {
+            return maxIndexCells;
+        }
+
+        public void setMaxIndexCells(long maxIndexCells) {
+            this.maxIndexCells = maxIndexCells;
+        }
+    }
+
+    public static class StoreEntrance {
+
+        /**
+         * Detect store entrances on the ingest path.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Distance to a store under which a courier is considered to enter it.
+         */
+        private double radiusMeters = 100;
+
+        /**
+         * Re-entries of a courier into the same store within this period are not counted again.
+         */
+        private Duration debounce = Duration.ofMinutes(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getRadiusMeters() {
+            return radiusMeters;
+        }
+
+        public void setRadiusMeters(double radiusMeters) {
+            this.radiusMeters = radiusMeters;
+        }
+
+        public Duration getDebounce() {
+            return debounce;
+        }
+
+        public void setDebounce(Duration debounce) {
+            this.debounce = debounce;
+        }
+    }
+
+    public static class Execution {
+
+        /**
+         * Run request handling, application tasks and Kafka send callbacks on virtual threads, on Java 21+.
+         */
+        private boolean virtualThreads = false;
+
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+    }
+
+    public static class Outbox {
+
+        /**
+         * Flag new and updated pings as pending in the same Mongo write, and publish them from a relay
+         * instead of the request thread.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of pending pings published by the relay in one batch.
+         */
+        private int batchSize = 1000;
+
+        /**
+         * How long the relay waits before polling again when no ping is pending.
+         */
+        private Duration pollInterval = Duration.ofMillis(100);
+
+        /**
+         * How long the relay waits for a batch to be acknowledged by the broker before retrying it.
+         */
+        private Duration sendTimeout = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public Duration getSendTimeout() {
+            return sendTimeout;
+        }
+
+        public void setSendTimeout(Duration sendTimeout) {
+            this.sendTimeout = sendTimeout;
+        }
+    }
+
+    public static class Feed {
+
+        /**
+         * Maximum number of live feed subscribers, further subscriptions are refused.
+         */
+        private int maxSubscribers = 10000;
+
+        /**
+         * Default and maximum number of couriers with an undelivered update a subscriber may hold, the
+         * updates of a courier are coalesced into its latest one.
+         */
+        private int maxPending = 1000;
+
+        /**
+         * Number of threads writing updates to the subscribers, when not running on virtual threads.
+         */
+        private int dispatcherThreads = 4;
+
+        /**
+         * Period of the heartbeat comments, which keep idle streams open and detect closed ones.
+         */
+        private Duration heartbeat = Duration.ofSeconds(15);
+
+        /**
+         * A subscriber whose write has been blocked for longer, by a client which stopped reading, is disconnected.
+         */
+        private Duration writeTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Lifetime of a stream, clients reconnect after it.
+         */
+        private Duration timeout = Duration.ofMinutes(30);
+
+        public int getMaxSubscribers() {
+            return maxSubscribers;
+        }
+
+        public void setMaxSubscribers(int maxSubscribers) {
+            this.maxSubscribers = maxSubscribers;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+
+        public int getDispatcherThreads() {
+            return dispatcherThreads;
+        }
+
+        public void setDispatcherThreads(int dispatcherThreads) {
+            this.dispatcherThreads = dispatcherThreads;
+        }
+
+        public Duration getHeartbeat() {
+            return heartbeat;
+        }
+
+        public void setHeartbeat(Duration heartbeat) {
+            this.heartbeat = heartbeat;
+        }
+
+        public Duration getWriteTimeout() {
+            return writeTimeout;
+        }
+
+        public void setWriteTimeout(Duration writeTimeout) {
+            this.writeTimeout = writeTimeout;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    public static class Export {
+
+        /**
+         * Number of exports streamed at once.
+         */
+        private int threads = 4;
+
+        /**
+         * Number of exports waiting for a thread, further exports are refused.
+         */
+        private int queueCapacity = 100;
+
+        /**
+         * Maximum duration of an export, after which its response is cut off, 0 for none.
+         */
+        private Duration timeout = Duration.ofHours(1);
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    public static class Tracing {
+
+        public enum Mode {
+
+            /**
+             * Trace nothing.
+             */
+            OFF,
+
+            /**
+             * Record the call count and durations of each method, logged as a summary every {@code timings-interval}.
+             */
+            TIMINGS,
+
+            /**
+             * Log the entry with its arguments and the exit with its result of each method, at debug level.
+             */
+            FULL
+        }
+
+        private Mode mode = Mode.FULL;
+
+        /**
+         * Fraction of the calls traced, unless a sampling rate is set for their package or class.
+         */
+        private double samplingRate = 1.0;
+
+        /**
+         * Fraction of the calls traced by package or class name, the longest matching name wins.
+         */
+        private Map<String, Double> samplingRates = new HashMap<>();
+
+        /**
+         * Format and write the trace logs on a background thread instead of the traced one.
+         */
+        private boolean async = false;
+
+        /**
+         * Maximum number of trace logs waiting for the background thread, further ones are dropped.
+         */
+        private int bufferSize = 8192;
+
+        private Duration timingsInterval = Duration.ofMinutes(1);
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        public void setMode(Mode mode) {
+            this.mode = mode;
+        }
+
+        public double getSamplingRate() {
+            return samplingRate;
+        }
+
+        public void setSamplingRate(double samplingRate) {
+            this.samplingRate = samplingRate;
+        }
+
+        public Map<String, Double> getSamplingRates() {
+            return samplingRates;
+        }
+
+        public void setSamplingRates(Map<String, Double> samplingRates) {
+            this.samplingRates = samplingRates;
+        }
+
+        public boolean isAsync() {
+            return async;
+        }
+
+        public void setAsync(boolean async) {
+            this.async = async;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public Duration getTimingsInterval() {
+            return timingsInterval;
+        }
+
+        public void setTimingsInterval(Duration timingsInterval) {
+            this.timingsInterval = timingsInterval;
+        }
+    }
+
+    public static class ServerTiming {
+
+        /**
+         * Whether to time the stages of the {@code /api/couriers} requests, answer them with a
+         * {@code Server-Timing} header and keep the slow ones.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Duration over which a request is kept in the slow request log.
+         */
+        private Duration slowThreshold = Duration.ofMillis(500);
+
+        /**
+         * Number of slow requests kept, the oldest ones are overwritten.
+         */
+        private int slowRequestsCapacity = 100;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getSlowThreshold() {
+            return slowThreshold;
+        }
+
+        public void setSlowThreshold(Duration slowThreshold) {
+            this.slowThreshold = slowThreshold;
+        }
+
+        public int getSlowRequestsCapacity() {
+            return slowRequestsCapacity;
+        }
+
+        public void setSlowRequestsCapacity(int slowRequestsCapacity) {
+            this.slowRequestsCapacity = slowRequestsCapacity;
+        }
+    }
 }
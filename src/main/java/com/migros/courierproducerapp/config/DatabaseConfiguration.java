@@ -56,7 +56,7 @@ public class DatabaseConfiguration {
         mongobee.setDbName(mongoProperties.getMongoClientDatabase());
         mongobee.setMongoTemplate(mongoTemplate);
         // package to scan for migrations
-        mongobee.setChangeLogsScanPackage("com.okta.developer.store.config.dbmigrations");
+        mongobee.setChangeLogsScanPackage("com.migros.courierproducerapp.config.dbmigrations");
         mongobee.setEnabled(true);
         return mongobee;
     }
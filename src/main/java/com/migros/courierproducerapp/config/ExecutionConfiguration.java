@@ -0,0 +1,81 @@
+package com.migros.courierproducerapp.config;
+
+import com.migros.courierproducerapp.util.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionProperties;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Threads running the request handling and the {@code spring.task.execution} tasks.
+ * <p>
+ * With {@code application.execution.virtual-threads}, servlet requests are dispatched by Undertow to a new
+ * virtual thread each instead of its bounded worker pool, and the application task executor, also used for
+ * asynchronous MVC requests, becomes a virtual thread per task executor. Blocking Mongo calls then only park
+ * a virtual thread. Virtual threads need Java 21+, older JVMs keep the platform thread pools.
+ * <p>
+ * Exports, which stream for as long as their range takes, run on a bounded pool of their own, so that they
+ * neither wait behind nor hold up the other asynchronous requests.
+ */
+@Configuration
+public class ExecutionConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(ExecutionConfiguration.class);
+
+    public static final String COURIER_EXPORT_EXECUTOR = "courierExportExecutor";
+
+    private final boolean virtualThreads;
+
+    private final ApplicationProperties.Export exportProperties;
+
+    public ExecutionConfiguration(ApplicationProperties applicationProperties) {
+        this.exportProperties = applicationProperties.getExport();
+        this.virtualThreads = applicationProperties.getExecution().isVirtualThreads() && VirtualThreads.isSupported();
+        if (applicationProperties.getExecution().isVirtualThreads() && !virtualThreads) {
+            log.warn("Virtual threads are enabled but not supported by Java {}, platform threads are used",
+                System.getProperty("java.version"));
+        }
+    }
+
+    @Lazy
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+        AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public AsyncTaskExecutor applicationTaskExecutor(TaskExecutorBuilder taskExecutorBuilder, TaskExecutionProperties taskExecutionProperties) {
+        if (virtualThreads) {
+            log.info("Running application tasks on virtual threads");
+            return new TaskExecutorAdapter(VirtualThreads.newThreadPerTaskExecutor(taskExecutionProperties.getThreadNamePrefix()));
+        }
+        return taskExecutorBuilder.build();
+    }
+
+    @Bean(name = COURIER_EXPORT_EXECUTOR)
+    public ThreadPoolTaskExecutor courierExportExecutor() {
+        return new TaskExecutorBuilder()
+            .corePoolSize(exportProperties.getThreads())
+            .maxPoolSize(exportProperties.getThreads())
+            .queueCapacity(exportProperties.getQueueCapacity())
+            .threadNamePrefix("courier-export-")
+            .build();
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<UndertowServletWebServerFactory> undertowExecutorCustomizer() {
+        return factory -> {
+            if (virtualThreads) {
+                log.info("Running Undertow requests on virtual threads");
+                factory.addDeploymentInfoCustomizers(deploymentInfo ->
+                    deploymentInfo.setExecutor(VirtualThreads.newThreadPerTaskExecutor("undertow-request-")));
+            }
+        };
+    }
+}
@@ -1,5 +1,8 @@
 package com.migros.courierproducerapp.config;
 
+import com.migros.courierproducerapp.service.kafka.ConsistentHashPartitioner;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
@@ -10,12 +13,42 @@ import java.util.Map;
 @ConfigurationProperties(prefix = "kafka")
 public class KafkaProperties {
 
+    /**
+     * Producer settings applied unless overridden in {@code kafka.producer}: acknowledged, idempotent
+     * and compressed batches, with a short linger so that concurrent pings share a request.
+     */
+    private static final Map<String, String> PRODUCER_DEFAULTS = new HashMap<>();
+
+    static {
+        PRODUCER_DEFAULTS.put(ProducerConfig.ACKS_CONFIG, "all");
+        PRODUCER_DEFAULTS.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, "true");
+        PRODUCER_DEFAULTS.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, "5");
+        PRODUCER_DEFAULTS.put(ProducerConfig.LINGER_MS_CONFIG, "5");
+        PRODUCER_DEFAULTS.put(ProducerConfig.BATCH_SIZE_CONFIG, "65536");
+        PRODUCER_DEFAULTS.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        PRODUCER_DEFAULTS.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, "1000");
+    }
+
     private String bootStrapServers = "localhost:9092";
 
     private Map<String, String> consumer = new HashMap<>();
 
     private Map<String, String> producer = new HashMap<>();
 
+    private final Publisher publisher = new Publisher();
+
+    /**
+     * Create the configured topics at startup when they do not exist yet.
+     */
+    private boolean createTopics = true;
+
+    private final Topic courierTopic = new Topic("topic_courier");
+
+    /**
+     * Topic of the store entrance events, always written as JSON.
+     */
+    private final Topic storeEntranceTopic = new Topic("topic_store_entrance");
+
     public String getBootStrapServers() {
         return bootStrapServers;
     }
@@ -41,10 +74,158 @@ public class KafkaProperties {
         if (!properties.containsKey("bootstrap.servers")) {
             properties.put("bootstrap.servers", this.bootStrapServers);
         }
+        PRODUCER_DEFAULTS.forEach(properties::putIfAbsent);
+        properties.putIfAbsent(ProducerConfig.PARTITIONER_CLASS_CONFIG, publisher.getPartitioner().getPartitionerClass().getName());
         return properties;
     }
 
     public void setProducer(Map<String, String> producer) {
         this.producer = producer;
     }
+
+    public Publisher getPublisher() {
+        return publisher;
+    }
+
+    public boolean isCreateTopics() {
+        return createTopics;
+    }
+
+    public void setCreateTopics(boolean createTopics) {
+        this.createTopics = createTopics;
+    }
+
+    public Topic getCourierTopic() {
+        return courierTopic;
+    }
+
+    public Topic getStoreEntranceTopic() {
+        return storeEntranceTopic;
+    }
+
+    public enum PartitionerStrategy {
+
+        /**
+         * Kafka default partitioner, murmur2 hash of the key modulo the partition count.
+         */
+        DEFAULT(DefaultPartitioner.class),
+
+        /**
+         * Jump consistent hash of the key, moves few keys when partitions are added.
+         */
+        CONSISTENT_HASH(ConsistentHashPartitioner.class);
+
+        private final Class<?> partitionerClass;
+
+        PartitionerStrategy(Class<?> partitionerClass) {
+            this.partitionerClass = partitionerClass;
+        }
+
+        public Class<?> getPartitionerClass() {
+            return partitionerClass;
+        }
+    }
+
+    public enum WireFormat {
+
+        /**
+         * JSON document, self-describing and readable by any consumer.
+         */
+        JSON,
+
+        /**
+         * Compact fixed-layout binary record, see {@link com.migros.courierproducerapp.service.kafka.CourierBinaryCodec}.
+         */
+        BINARY
+    }
+
+    public static class Topic {
+
+        private String name;
+
+        private int partitions = 12;
+
+        private short replicationFactor = 1;
+
+        private WireFormat format = WireFormat.JSON;
+
+        public Topic(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        public void setPartitions(int partitions) {
+            this.partitions = partitions;
+        }
+
+        public short getReplicationFactor() {
+            return replicationFactor;
+        }
+
+        public void setReplicationFactor(short replicationFactor) {
+            this.replicationFactor = replicationFactor;
+        }
+
+        public WireFormat getFormat() {
+            return format;
+        }
+
+        public void setFormat(WireFormat format) {
+            this.format = format;
+        }
+    }
+
+    public static class Publisher {
+
+        /**
+         * Maximum number of records handed to the producer and not yet acknowledged.
+         */
+        private int maxPendingRecords = 10000;
+
+        /**
+         * How long a caller waits for a free slot before the record is rejected.
+         */
+        private long acquireTimeoutMs = 50;
+
+        /**
+         * Partitioner used for keyed records, unless {@code kafka.producer.partitioner.class} is set
+         * to a custom {@link org.apache.kafka.clients.producer.Partitioner}.
+         */
+        private PartitionerStrategy partitioner = PartitionerStrategy.DEFAULT;
+
+        public int getMaxPendingRecords() {
+            return maxPendingRecords;
+        }
+
+        public void setMaxPendingRecords(int maxPendingRecords) {
+            this.maxPendingRecords = maxPendingRecords;
+        }
+
+        public long getAcquireTimeoutMs() {
+            return acquireTimeoutMs;
+        }
+
+        public void setAcquireTimeoutMs(long acquireTimeoutMs) {
+            this.acquireTimeoutMs = acquireTimeoutMs;
+        }
+
+        public PartitionerStrategy getPartitioner() {
+            return partitioner;
+        }
+
+        public void setPartitioner(PartitionerStrategy partitioner) {
+            this.partitioner = partitioner;
+        }
+    }
 }
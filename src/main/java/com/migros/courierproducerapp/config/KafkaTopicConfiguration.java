@@ -0,0 +1,62 @@
+package com.migros.courierproducerapp.config;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Creates the Kafka topics with their configured partition count, instead of relying on the
+ * broker defaults when the first record is sent.
+ */
+@Configuration
+public class KafkaTopicConfiguration {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final Logger log = LoggerFactory.getLogger(KafkaTopicConfiguration.class);
+
+    private final KafkaProperties kafkaProperties;
+
+    public KafkaTopicConfiguration(KafkaProperties kafkaProperties) {
+        this.kafkaProperties = kafkaProperties;
+    }
+
+    @PostConstruct
+    public void createTopics() {
+        if (!kafkaProperties.isCreateTopics()) {
+            return;
+        }
+        List<KafkaProperties.Topic> topics = Arrays.asList(kafkaProperties.getCourierTopic(), kafkaProperties.getStoreEntranceTopic());
+        Map<String, Object> properties = Collections.singletonMap(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG,
+            kafkaProperties.getProducerProps().get(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG));
+        try (AdminClient adminClient = AdminClient.create(properties)) {
+            Set<String> existing = adminClient.listTopics().names().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            List<NewTopic> missing = topics.stream()
+                .filter(topic -> !existing.contains(topic.getName()))
+                .map(topic -> new NewTopic(topic.getName(), topic.getPartitions(), topic.getReplicationFactor()))
+                .collect(Collectors.toList());
+            if (!missing.isEmpty()) {
+                adminClient.createTopics(missing).all().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                log.info("Created Kafka topics: {}", missing);
+            }
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Could not create Kafka topics {}, broker defaults will apply: {}", topics, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.migros.courierproducerapp.config;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeospatialIndex;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Manages the indexes of the courier collection at startup, in every profile.
+ * <p>
+ * The {@code (courierID, timestamp)} index backs every per-courier query. The TTL index on {@code timestamp}
+ * follows {@code application.database.courier-retention}: it is created, altered or dropped to match it. Without
+ * retention, a plain index on {@code timestamp} takes its place, so that exports of a time range always have one.
+ * The {@code 2dsphere} index on the last location of {@code courier_stats} backs proximity queries.
+ * The partial outbox index only holds the pings waiting to be published, so the relay poll stays cheap.
+ */
+@Configuration
+public class MongoIndexConfiguration {
+
+    public static final String TRACK_INDEX = "courierID_timestamp";
+
+    public static final String RETENTION_INDEX = "timestamp_ttl";
+
+    public static final String TIMESTAMP_INDEX = "timestamp";
+
+    public static final String LOCATION_INDEX = "location_2dsphere";
+
+    public static final String OUTBOX_INDEX = "pendingPublish_id";
+
+    private static final String COLLECTION = "courier";
+
+    private final Logger log = LoggerFactory.getLogger(MongoIndexConfiguration.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ApplicationProperties applicationProperties;
+
+    public MongoIndexConfiguration(MongoTemplate mongoTemplate, ApplicationProperties applicationProperties) {
+        this.mongoTemplate = mongoTemplate;
+        this.applicationProperties = applicationProperties;
+    }
+
+    @PostConstruct
+    public void initIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(COLLECTION);
+        indexOps.ensureIndex(new Index()
+            .on("courierID", Sort.Direction.ASC)
+            .on("timestamp", Sort.Direction.ASC)
+            .named(TRACK_INDEX));
+        manageRetentionIndex(indexOps);
+        indexOps.ensureIndex(new Index()
+            .on("pendingPublish", Sort.Direction.ASC)
+            .on("_id", Sort.Direction.ASC)
+            .partial(PartialIndexFilter.of(Criteria.where("pendingPublish").is(true)))
+            .named(OUTBOX_INDEX));
+        mongoTemplate.indexOps("courier_stats").ensureIndex(new GeospatialIndex("location")
+            .typed(GeoSpatialIndexType.GEO_2DSPHERE)
+            .named(LOCATION_INDEX));
+        if (applicationProperties.getDatabase().isExplainOnStartup()) {
+            explainTrackQuery();
+        }
+    }
+
+    private void manageRetentionIndex(IndexOperations indexOps) {
+        Duration retention = applicationProperties.getDatabase().getCourierRetention();
+        List<IndexInfo> indexes = indexOps.getIndexInfo();
+        Optional<IndexInfo> existing = indexes.stream()
+            .filter(index -> RETENTION_INDEX.equals(index.getName()))
+            .findFirst();
+        boolean timestampIndexed = indexes.stream()
+            .anyMatch(index -> TIMESTAMP_INDEX.equals(index.getName()));
+        if (retention == null || retention.isZero()) {
+            if (existing.isPresent()) {
+                log.info("Dropping TTL index {} of collection {}", RETENTION_INDEX, COLLECTION);
+                indexOps.dropIndex(RETENTION_INDEX);
+            }
+            indexOps.ensureIndex(new Index().on("timestamp", Sort.Direction.ASC).named(TIMESTAMP_INDEX));
+            return;
+        }
+        // Both are on timestamp alone, Mongo refuses a second index with the same keys
+        if (timestampIndexed) {
+            log.info("Dropping index {} of collection {}, replaced by TTL index {}", TIMESTAMP_INDEX, COLLECTION, RETENTION_INDEX);
+            indexOps.dropIndex(TIMESTAMP_INDEX);
+        }
+        if (!existing.isPresent()) {
+            log.info("Creating TTL index {} of collection {}, retention {}", RETENTION_INDEX, COLLECTION, retention);
+            indexOps.ensureIndex(new Index().on("timestamp", Sort.Direction.ASC).named(RETENTION_INDEX).expire(retention));
+        } else if (!existing.get().getExpireAfter().map(retention::equals).orElse(false)) {
+            log.info("Changing retention of TTL index {} of collection {} to {}", RETENTION_INDEX, COLLECTION, retention);
+            mongoTemplate.getDb().runCommand(new Document("collMod", COLLECTION)
+                .append("index", new Document("name", RETENTION_INDEX).append("expireAfterSeconds", retention.getSeconds())));
+        }
+    }
+
+    private void explainTrackQuery() {
+        Document command = new Document("explain", new Document("find", COLLECTION)
+            .append("filter", new Document("courierID", ""))
+            .append("sort", new Document("timestamp", 1)))
+            .append("verbosity", "queryPlanner");
+        try {
+            Document explain = mongoTemplate.getDb().runCommand(command);
+            Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+            List<String> stages = new ArrayList<>();
+            collectStages(winningPlan, stages);
+            if (stages.contains("COLLSCAN")) {
+                log.warn("Courier track query does a collection scan, plan: {}", stages);
+            } else {
+                log.info("Courier track query plan: {} using index {}", stages, findIndexName(winningPlan));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not explain the courier track query: {}", e.getMessage());
+        }
+    }
+
+    private static void collectStages(Document stage, List<String> stages) {
+        stages.add(stage.getString("stage"));
+        Document inputStage = stage.get("inputStage", Document.class);
+        if (inputStage != null) {
+            collectStages(inputStage, stages);
+        }
+    }
+
+    private static String findIndexName(Document stage) {
+        if (stage.containsKey("indexName")) {
+            return stage.getString("indexName");
+        }
+        Document inputStage = stage.get("inputStage", Document.class);
+        return inputStage == null ? null : findIndexName(inputStage);
+    }
+}
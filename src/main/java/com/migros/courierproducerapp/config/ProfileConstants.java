@@ -5,4 +5,5 @@ public class ProfileConstants {
     public static final String SPRING_PROFILE_TEST = "test";
     public static final String SPRING_PROFILE_PRODUCTION = "prod";
     public static final String SPRING_PROFILE_SWAGGER = "swagger";
+    public static final String SPRING_PROFILE_REACTIVE = "reactive";
 }
@@ -0,0 +1,42 @@
+package com.migros.courierproducerapp.config;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+
+/**
+ * Non-blocking Mongo client of the reactive profile, next to the blocking one used by the rest of the application.
+ * <p>
+ * It shares the {@code spring.data.mongodb} settings and the entity mapping of the blocking client.
+ * The reactive auto-configuration is excluded in {@code application.yml}, so no reactive client is started
+ * without this profile.
+ */
+@Configuration
+@EnableReactiveMongoRepositories("com.migros.courierproducerapp.repository.reactive")
+@Profile(ProfileConstants.SPRING_PROFILE_REACTIVE)
+public class ReactiveDatabaseConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(ReactiveDatabaseConfiguration.class);
+
+    @Bean(destroyMethod = "close")
+    public MongoClient reactiveMongoClient(MongoProperties mongoProperties) {
+        log.debug("Configuring the reactive Mongo client");
+        return MongoClients.create(mongoProperties.determineUri());
+    }
+
+    @Bean
+    public ReactiveMongoTemplate reactiveMongoTemplate(MongoClient reactiveMongoClient, MongoProperties mongoProperties,
+                                                       MongoConverter mongoConverter) {
+        return new ReactiveMongoTemplate(new SimpleReactiveMongoDatabaseFactory(reactiveMongoClient,
+            mongoProperties.getMongoClientDatabase()), mongoConverter);
+    }
+}
@@ -51,7 +51,8 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
             .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
         .and()
             .authorizeRequests()
-            .antMatchers("/api/**").permitAll();
+            .antMatchers("/api/**").permitAll()
+            .antMatchers("/management/prometheus").permitAll();
         // @formatter:on
     }
 
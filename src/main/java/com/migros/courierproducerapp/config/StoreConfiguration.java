@@ -0,0 +1,64 @@
+package com.migros.courierproducerapp.config;
+
+import com.migros.courierproducerapp.domain.Store;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Seeds the stores at startup, in every profile, when the store collection is empty.
+ * <p>
+ * Stores are upserted by name under a unique index, so instances starting together insert each of them once, and
+ * stores edited since are left as they are.
+ */
+@Configuration
+public class StoreConfiguration {
+
+    public static final String NAME_INDEX = "name_unique";
+
+    private static final List<Store> DEFAULT_STORES = Arrays.asList(
+        new Store("Ata\u015fehir MMM Migros", 40.9923307, 29.1244229),
+        new Store("Novada MMM Migros", 40.986106, 29.1161293),
+        new Store("Beylikd\u00fcz\u00fc 5M Migros", 41.0066851, 28.6552262),
+        new Store("Ortak\u00f6y MMM Migros", 41.055783, 29.0210292),
+        new Store("Caddebostan MMM Migros", 40.9632463, 29.0630908));
+
+    private final Logger log = LoggerFactory.getLogger(StoreConfiguration.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public StoreConfiguration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void initStores() {
+        mongoTemplate.indexOps(Store.class).ensureIndex(new Index()
+            .on("name", Sort.Direction.ASC)
+            .unique()
+            .named(NAME_INDEX));
+        if (mongoTemplate.count(new Query(), Store.class) > 0) {
+            return;
+        }
+        for (Store store : DEFAULT_STORES) {
+            try {
+                mongoTemplate.upsert(Query.query(Criteria.where("name").is(store.getName())),
+                    new Update().setOnInsert("lat", store.getLat()).setOnInsert("lng", store.getLng()), Store.class);
+            } catch (DuplicateKeyException e) {
+                log.debug("Store {} inserted concurrently", store.getName());
+            }
+        }
+        log.info("Seeded {} stores", DEFAULT_STORES.size());
+    }
+}
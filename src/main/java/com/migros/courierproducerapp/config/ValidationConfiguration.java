@@ -0,0 +1,72 @@
+package com.migros.courierproducerapp.config;
+
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.service.CourierMetrics;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.Errors;
+import org.springframework.validation.SmartValidator;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.validation.Validator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configure the validator of {@code @Valid} request bodies to time the validation of single pings.
+ */
+@Configuration
+public class ValidationConfiguration implements WebMvcConfigurer {
+
+    private final Validator validator;
+
+    private final CourierMetrics courierMetrics;
+
+    public ValidationConfiguration(Validator validator, CourierMetrics courierMetrics) {
+        this.validator = validator;
+        this.courierMetrics = courierMetrics;
+    }
+
+    @Override
+    public org.springframework.validation.Validator getValidator() {
+        return new TimedValidator(new SpringValidatorAdapter(validator), courierMetrics.validation(CourierMetrics.PATH_SINGLE));
+    }
+
+    /**
+     * Validator recording the validation of {@link Courier} targets.
+     */
+    private static final class TimedValidator implements SmartValidator {
+
+        private final SmartValidator delegate;
+
+        private final CourierMetrics.StageTimer timer;
+
+        private TimedValidator(SmartValidator delegate, CourierMetrics.StageTimer timer) {
+            this.delegate = delegate;
+            this.timer = timer;
+        }
+
+        @Override
+        public boolean supports(Class<?> clazz) {
+            return delegate.supports(clazz);
+        }
+
+        @Override
+        public void validate(Object target, Errors errors) {
+            validate(target, errors, new Object[0]);
+        }
+
+        @Override
+        public void validate(Object target, Errors errors, Object... validationHints) {
+            if (!(target instanceof Courier)) {
+                delegate.validate(target, errors, validationHints);
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                delegate.validate(target, errors, validationHints);
+            } finally {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.migros.courierproducerapp.config;
 
+import com.migros.courierproducerapp.management.SlowRequestLog;
+import com.migros.courierproducerapp.web.filter.ServerTimingFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.boot.web.servlet.ServletContextInitializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,10 +28,11 @@ public class WebConfigurer implements ServletContextInitializer {
 
     private final Environment env;
 
+    private final ApplicationProperties applicationProperties;
 
-
-    public WebConfigurer(Environment env) {
+    public WebConfigurer(Environment env, ApplicationProperties applicationProperties) {
         this.env = env;
+        this.applicationProperties = applicationProperties;
     }
 
     @Override
@@ -51,5 +56,15 @@ public class WebConfigurer implements ServletContextInitializer {
         return new CorsFilter(source);
     }
 
+    @Bean
+    @ConditionalOnProperty(prefix = "application.server-timing", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter(SlowRequestLog slowRequestLog) {
+        log.debug("Registering Server-Timing filter");
+        FilterRegistrationBean<ServerTimingFilter> registration = new FilterRegistrationBean<>(
+            new ServerTimingFilter(applicationProperties.getServerTiming().getSlowThreshold(), slowRequestLog));
+        registration.addUrlPatterns("/api/couriers", "/api/couriers/*");
+        return registration;
+    }
+
 
 }
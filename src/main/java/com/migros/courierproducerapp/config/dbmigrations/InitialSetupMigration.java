@@ -0,0 +1,23 @@
+package com.migros.courierproducerapp.config.dbmigrations;
+
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+import com.migros.courierproducerapp.config.MongoIndexConfiguration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+
+/**
+ * Creates the initial database setup.
+ */
+@ChangeLog(order = "001")
+public class InitialSetupMigration {
+
+    @ChangeSet(order = "01", author = "initiator", id = "01-addCourierTrackIndex")
+    public void addCourierTrackIndex(MongoTemplate mongoTemplate) {
+        mongoTemplate.indexOps("courier").ensureIndex(new Index()
+            .on("courierID", Sort.Direction.ASC)
+            .on("timestamp", Sort.Direction.ASC)
+            .named(MongoIndexConfiguration.TRACK_INDEX));
+    }
+}
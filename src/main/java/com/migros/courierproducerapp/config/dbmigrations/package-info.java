@@ -0,0 +1,4 @@
+/**
+ * Mongobee database migrations.
+ */
+package com.migros.courierproducerapp.config.dbmigrations;
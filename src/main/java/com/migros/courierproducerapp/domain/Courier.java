@@ -1,5 +1,6 @@
 package com.migros.courierproducerapp.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Field;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -26,16 +27,27 @@ public class Courier implements Serializable {
     private String courierID;
 
     @NotNull
+    @DecimalMin("-90")
+    @DecimalMax("90")
     @Field("lat")
     private Double lat;
 
     @NotNull
+    @DecimalMin("-180")
+    @DecimalMax("180")
     @Field("lng")
     private Double lng;
 
     @Field("timestamp")
     private LocalDateTime timestamp;
 
+    /**
+     * Set while the ping waits for the outbox relay to publish it, absent once published.
+     */
+    @JsonIgnore
+    @Field("pendingPublish")
+    private Boolean pendingPublish;
+
     public static long getSerialVersionUID() {
         return serialVersionUID;
     }
@@ -80,21 +92,36 @@ public class Courier implements Serializable {
         this.timestamp = timestamp;
     }
 
+    public Boolean getPendingPublish() {
+        return pendingPublish;
+    }
+
+    public void setPendingPublish(Boolean pendingPublish) {
+        this.pendingPublish = pendingPublish;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Courier)) return false;
         Courier courier = (Courier) o;
-        return getId().equals(courier.getId()) &&
-                getCourierID().equals(courier.getCourierID()) &&
-                getLat().equals(courier.getLat()) &&
-                getLng().equals(courier.getLng()) &&
-                getTimestamp().equals(courier.getTimestamp());
+        return Objects.equals(id, courier.id) &&
+                Objects.equals(courierID, courier.courierID) &&
+                Objects.equals(lat, courier.lat) &&
+                Objects.equals(lng, courier.lng) &&
+                Objects.equals(timestamp, courier.timestamp);
     }
 
+    /**
+     * Same value as {@code Objects.hash} of the fields, without allocating the varargs array.
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(getId(), getCourierID(), getLat(), getLng(), getTimestamp());
+        int result = 31 + Objects.hashCode(id);
+        result = 31 * result + Objects.hashCode(courierID);
+        result = 31 * result + Objects.hashCode(lat);
+        result = 31 * result + Objects.hashCode(lng);
+        return 31 * result + Objects.hashCode(timestamp);
     }
 
     @Override
@@ -0,0 +1,113 @@
+package com.migros.courierproducerapp.domain;
+
+import com.migros.courierproducerapp.util.InternPool;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Immutable position of a courier at a point in time, with primitive coordinates and timestamp.
+ * <p>
+ * The timestamp is the epoch millis of the {@link LocalDateTime} of the ping read as UTC, so the
+ * conversion is lossless down to the millisecond and independent of the server time zone.
+ * <p>
+ * It is the representation of a ping on the ingest, distance and publish paths: {@link Courier} and the DTOs are
+ * converted at the edges only. CourierIDs are pooled, so every location of a courier shares one instance.
+ */
+public final class CourierLocation {
+
+    private static final InternPool COURIER_IDS = new InternPool(1 << 20);
+
+    private final String courierID;
+
+    private final double lat;
+
+    private final double lng;
+
+    private final long timestamp;
+
+    public CourierLocation(String courierID, double lat, double lng, long timestamp) {
+        this.courierID = COURIER_IDS.intern(courierID);
+        this.lat = lat;
+        this.lng = lng;
+        this.timestamp = timestamp;
+    }
+
+    public static CourierLocation of(Courier courier) {
+        return new CourierLocation(courier.getCourierID(), courier.getLat(), courier.getLng(),
+            toEpochMillis(courier.getTimestamp()));
+    }
+
+    public static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp == null ? Long.MIN_VALUE : timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Epoch millis of a timestamp read from Mongo, which stores the {@link LocalDateTime} of a ping as the instant
+     * of that local date time in the server time zone.
+     *
+     * @param stored the stored date, may be {@code null}.
+     * @return the epoch millis of the local date time read as UTC.
+     */
+    public static long toEpochMillis(Date stored) {
+        if (stored == null) {
+            return Long.MIN_VALUE;
+        }
+        long millis = stored.getTime();
+        return millis + ZoneId.systemDefault().getRules().getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+    }
+
+    public static LocalDateTime toLocalDateTime(long timestamp) {
+        return timestamp == Long.MIN_VALUE ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC);
+    }
+
+    public String getCourierID() {
+        return courierID;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLng() {
+        return lng;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public LocalDateTime getLocalDateTime() {
+        return toLocalDateTime(timestamp);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CourierLocation)) return false;
+        CourierLocation that = (CourierLocation) o;
+        return Double.compare(that.lat, lat) == 0 &&
+                Double.compare(that.lng, lng) == 0 &&
+                timestamp == that.timestamp &&
+                courierID.equals(that.courierID);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(courierID, lat, lng, timestamp);
+    }
+
+    @Override
+    public String toString() {
+        return "CourierLocation{" +
+                "courierID='" + courierID + '\'' +
+                ", lat=" + lat +
+                ", lng=" + lng +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
@@ -0,0 +1,129 @@
+package com.migros.courierproducerapp.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Running aggregate of the pings of a courier, maintained on the write path.
+ */
+@Document(collection = "courier_stats")
+public class CourierStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private String courierID;
+
+    @Field("totalDistance")
+    private double totalDistance;
+
+    @Field("pingCount")
+    private long pingCount;
+
+    @Field("lastLat")
+    private Double lastLat;
+
+    @Field("lastLng")
+    private Double lastLng;
+
+    @Field("lastTimestamp")
+    private LocalDateTime lastTimestamp;
+
+    /**
+     * Last position as a GeoJSON point, backing the {@code 2dsphere} index of proximity queries.
+     */
+    @Field("location")
+    private GeoJsonPoint location;
+
+    @Version
+    private Long version;
+
+    public CourierStats() {
+    }
+
+    public CourierStats(String courierID) {
+        this.courierID = courierID;
+    }
+
+    public String getCourierID() {
+        return courierID;
+    }
+
+    public void setCourierID(String courierID) {
+        this.courierID = courierID;
+    }
+
+    public double getTotalDistance() {
+        return totalDistance;
+    }
+
+    public void setTotalDistance(double totalDistance) {
+        this.totalDistance = totalDistance;
+    }
+
+    public long getPingCount() {
+        return pingCount;
+    }
+
+    public void setPingCount(long pingCount) {
+        this.pingCount = pingCount;
+    }
+
+    public Double getLastLat() {
+        return lastLat;
+    }
+
+    public void setLastLat(Double lastLat) {
+        this.lastLat = lastLat;
+    }
+
+    public Double getLastLng() {
+        return lastLng;
+    }
+
+    public void setLastLng(Double lastLng) {
+        this.lastLng = lastLng;
+    }
+
+    public LocalDateTime getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public void setLastTimestamp(LocalDateTime lastTimestamp) {
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    public GeoJsonPoint getLocation() {
+        return location;
+    }
+
+    public void setLocation(GeoJsonPoint location) {
+        this.location = location;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return "CourierStats{" +
+                "courierID='" + courierID + '\'' +
+                ", totalDistance=" + totalDistance +
+                ", pingCount=" + pingCount +
+                ", lastLat=" + lastLat +
+                ", lastLng=" + lastLng +
+                ", lastTimestamp=" + lastTimestamp +
+                '}';
+    }
+}
@@ -0,0 +1,149 @@
+package com.migros.courierproducerapp.management;
+
+import com.migros.courierproducerapp.config.ApplicationProperties;
+import com.migros.courierproducerapp.util.RequestTiming;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ring buffer of the last slow requests, with the durations of their stages.
+ * <p>
+ * Only requests over {@code application.server-timing.slow-threshold} are added, so the lock is rarely taken.
+ * Once full, the oldest request is overwritten.
+ */
+@Component
+public class SlowRequestLog {
+
+    private final SlowRequest[] requests;
+
+    private long added;
+
+    public SlowRequestLog(ApplicationProperties applicationProperties) {
+        this.requests = new SlowRequest[Math.max(applicationProperties.getServerTiming().getSlowRequestsCapacity(), 1)];
+    }
+
+    /**
+     * Add a slow request, overwriting the oldest one when full.
+     *
+     * @param request the request.
+     */
+    public synchronized void add(SlowRequest request) {
+        requests[(int) (added % requests.length)] = request;
+        added++;
+    }
+
+    /**
+     * Get the last slow requests, newest first.
+     *
+     * @param limit the maximum number of requests.
+     * @return the requests.
+     */
+    public synchronized List<SlowRequest> getLast(int limit) {
+        int count = (int) Math.min(Math.min(added, requests.length), Math.max(limit, 0));
+        List<SlowRequest> result = new ArrayList<>(count);
+        for (long i = added - 1; i >= added - count; i--) {
+            result.add(requests[(int) (i % requests.length)]);
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of slow requests added since the start, including the overwritten ones.
+     *
+     * @return the number of requests.
+     */
+    public synchronized long getAdded() {
+        return added;
+    }
+
+    public int getCapacity() {
+        return requests.length;
+    }
+
+    /**
+     * A slow request and the durations of its stages, in milliseconds.
+     */
+    public static final class SlowRequest {
+
+        private final Instant timestamp;
+
+        private final String method;
+
+        private final String uri;
+
+        private final int status;
+
+        private final double durationMs;
+
+        private final List<Stage> stages;
+
+        public SlowRequest(Instant timestamp, String method, String uri, int status, long durationNanos, RequestTiming timing) {
+            this.timestamp = timestamp;
+            this.method = method;
+            this.uri = uri;
+            this.status = status;
+            this.durationMs = RequestTiming.toMillis(durationNanos);
+            this.stages = new ArrayList<>();
+            for (RequestTiming.Stage stage : timing.getStages()) {
+                stages.add(new Stage(stage.getName(), RequestTiming.toMillis(stage.getNanos()), stage.getCount()));
+            }
+        }
+
+        public Instant getTimestamp() {
+            return timestamp;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public double getDurationMs() {
+            return durationMs;
+        }
+
+        public List<Stage> getStages() {
+            return stages;
+        }
+    }
+
+    /**
+     * Total duration of a stage of a request, and the number of times it ran.
+     */
+    public static final class Stage {
+
+        private final String name;
+
+        private final double durationMs;
+
+        private final int count;
+
+        private Stage(String name, double durationMs, int count) {
+            this.name = name;
+            this.durationMs = durationMs;
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getDurationMs() {
+            return durationMs;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
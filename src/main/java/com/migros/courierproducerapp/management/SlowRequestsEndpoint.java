@@ -0,0 +1,34 @@
+package com.migros.courierproducerapp.management;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code GET  /management/slowrequests?limit=} : the last slow {@code /api/couriers} requests, newest first,
+ * with the durations of their stages.
+ */
+@Component
+@Endpoint(id = "slowrequests")
+public class SlowRequestsEndpoint {
+
+    private final SlowRequestLog slowRequestLog;
+
+    public SlowRequestsEndpoint(SlowRequestLog slowRequestLog) {
+        this.slowRequestLog = slowRequestLog;
+    }
+
+    @ReadOperation
+    public Map<String, Object> slowRequests(@Nullable Integer limit) {
+        List<SlowRequestLog.SlowRequest> requests = slowRequestLog.getLast(limit != null ? limit : slowRequestLog.getCapacity());
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", slowRequestLog.getAdded());
+        result.put("requests", requests);
+        return result;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Actuator endpoints and their in-memory state.
+ */
+package com.migros.courierproducerapp.management;
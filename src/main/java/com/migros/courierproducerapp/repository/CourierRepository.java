@@ -13,9 +13,13 @@ import java.util.Optional;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface CourierRepository extends MongoRepository<Courier, String> {
+public interface CourierRepository extends MongoRepository<Courier, String>, CourierRepositoryCustom {
 
     List<Courier> findAllByCourierID(String courierID);
 
     Optional<Courier> findOneByCourierID(String courierID);
+
+    Optional<Courier> findFirstByCourierIDOrderByTimestampDesc(String courierID);
+
+    boolean existsByCourierID(String courierID);
 }
@@ -0,0 +1,64 @@
+package com.migros.courierproducerapp.repository;
+
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.domain.CourierLocation;
+import org.bson.Document;
+import org.springframework.data.util.CloseableIterator;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Custom queries of the {@link CourierRepository}.
+ */
+public interface CourierRepositoryCustom {
+
+    /**
+     * Stream the track of a courier in timestamp order over a cursor. The raw documents are read straight into
+     * {@link CourierLocation}s, without mapping them to entities. The iterator must be closed to release the cursor.
+     *
+     * @param courierID the courierID.
+     * @param from      the inclusive lower bound of the timestamps, or {@code null}.
+     * @param to        the exclusive upper bound of the timestamps, or {@code null}.
+     * @return the locations of the courier.
+     */
+    CloseableIterator<CourierLocation> streamTrack(String courierID, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Stream the raw documents of the pings of a courier, or of every courier, within a time range, over a cursor.
+     * Pings are in timestamp order, but for a whole collection without a range, which is in id order. The iterator
+     * must be closed to release the cursor.
+     *
+     * @param courierID the courierID, or {@code null} for every courier.
+     * @param from      the inclusive lower bound of the timestamps, or {@code null}.
+     * @param to        the exclusive upper bound of the timestamps, or {@code null}.
+     * @return the documents.
+     */
+    CloseableIterator<Document> streamExport(String courierID, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Find the pings waiting for the outbox relay, oldest id first.
+     *
+     * @param limit the maximum number of pings.
+     * @return the pings.
+     */
+    List<Courier> findPendingPublish(int limit);
+
+    /**
+     * Clear the pending publish flag of pings, with one update.
+     *
+     * @param ids the ids of the published pings.
+     * @return the number of pings cleared.
+     */
+    long markPublished(Collection<String> ids);
+
+    /**
+     * Find the couriers following an id, in id order, read from the {@code _id} index without skipping.
+     *
+     * @param afterId the exclusive lower bound of the ids, a valid {@code ObjectId}, or {@code null} for the first couriers.
+     * @param limit   the maximum number of couriers.
+     * @return the couriers.
+     */
+    List<Courier> findAfter(String afterId, int limit);
+}
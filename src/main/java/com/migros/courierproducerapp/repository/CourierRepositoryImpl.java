@@ -0,0 +1,114 @@
+package com.migros.courierproducerapp.repository;
+
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.domain.CourierLocation;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Implementation of the {@link CourierRepositoryCustom} queries.
+ */
+public class CourierRepositoryImpl implements CourierRepositoryCustom {
+
+    private static final int CURSOR_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    public CourierRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public CloseableIterator<CourierLocation> streamTrack(String courierID, LocalDateTime from, LocalDateTime to) {
+        CloseableIterator<Document> documents = mongoTemplate.stream(trackQuery(courierID, from, to), Document.class,
+            mongoTemplate.getCollectionName(Courier.class));
+        return new CloseableIterator<CourierLocation>() {
+
+            @Override
+            public boolean hasNext() {
+                return documents.hasNext();
+            }
+
+            @Override
+            public CourierLocation next() {
+                Document document = documents.next();
+                return new CourierLocation(courierID, document.getDouble("lat"), document.getDouble("lng"),
+                    CourierLocation.toEpochMillis(document.getDate("timestamp")));
+            }
+
+            @Override
+            public void close() {
+                documents.close();
+            }
+        };
+    }
+
+    @Override
+    public CloseableIterator<Document> streamExport(String courierID, LocalDateTime from, LocalDateTime to) {
+        Criteria criteria = courierID == null ? new Criteria() : Criteria.where("courierID").is(courierID);
+        addTimestampRange(criteria, from, to);
+        // A range of every courier is read from the timestamp index rather than filtered along the whole _id index
+        boolean byId = courierID == null && from == null && to == null;
+        Query query = Query.query(criteria)
+            .with(Sort.by(Sort.Direction.ASC, byId ? "_id" : "timestamp"))
+            .cursorBatchSize(CURSOR_BATCH_SIZE);
+        query.fields().exclude("pendingPublish").exclude("_class");
+        return mongoTemplate.stream(query, Document.class, mongoTemplate.getCollectionName(Courier.class));
+    }
+
+    @Override
+    public List<Courier> findAfter(String afterId, int limit) {
+        // The id is converted here, a string under $gt is left as is by the mapping and never matches an ObjectId
+        Query query = afterId == null ? new Query() : Query.query(Criteria.where("_id").gt(new ObjectId(afterId)));
+        return mongoTemplate.find(query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(limit), Courier.class);
+    }
+
+    @Override
+    public List<Courier> findPendingPublish(int limit) {
+        Query query = Query.query(Criteria.where("pendingPublish").is(true))
+            .with(Sort.by(Sort.Direction.ASC, "_id"))
+            .limit(limit);
+        return mongoTemplate.find(query, Courier.class);
+    }
+
+    @Override
+    public long markPublished(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids)), new Update().unset("pendingPublish"),
+            Courier.class).getModifiedCount();
+    }
+
+    private static Query trackQuery(String courierID, LocalDateTime from, LocalDateTime to) {
+        Criteria criteria = Criteria.where("courierID").is(courierID);
+        addTimestampRange(criteria, from, to);
+        Query query = Query.query(criteria)
+            .with(Sort.by(Sort.Direction.ASC, "timestamp"))
+            .cursorBatchSize(CURSOR_BATCH_SIZE);
+        query.fields().exclude("_id").include("lat").include("lng").include("timestamp");
+        return query;
+    }
+
+    private static void addTimestampRange(Criteria criteria, LocalDateTime from, LocalDateTime to) {
+        if (from != null || to != null) {
+            Criteria timestamp = criteria.and("timestamp");
+            if (from != null) {
+                timestamp.gte(from);
+            }
+            if (to != null) {
+                timestamp.lt(to);
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.migros.courierproducerapp.repository;
+
+import com.migros.courierproducerapp.domain.CourierStats;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+
+/**
+ * Spring Data Mongo repository for the CourierStats entity.
+ */
+@Repository
+public interface CourierStatsRepository extends MongoRepository<CourierStats, String> {
+}
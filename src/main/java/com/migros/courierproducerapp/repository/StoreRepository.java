@@ -0,0 +1,13 @@
+package com.migros.courierproducerapp.repository;
+
+import com.migros.courierproducerapp.domain.Store;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+
+/**
+ * Spring Data Mongo repository for the Store entity.
+ */
+@Repository
+public interface StoreRepository extends MongoRepository<Store, String> {
+}
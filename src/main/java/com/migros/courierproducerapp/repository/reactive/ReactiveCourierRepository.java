@@ -0,0 +1,19 @@
+package com.migros.courierproducerapp.repository.reactive;
+
+import com.migros.courierproducerapp.domain.Courier;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Spring Data reactive Mongo repository for the Courier entity, the non-blocking counterpart of
+ * {@link com.migros.courierproducerapp.repository.CourierRepository}.
+ */
+@Repository
+public interface ReactiveCourierRepository extends ReactiveMongoRepository<Courier, String> {
+
+    Mono<Courier> findFirstByCourierIDOrderByTimestampDesc(String courierID);
+
+    Mono<Boolean> existsByCourierID(String courierID);
+}
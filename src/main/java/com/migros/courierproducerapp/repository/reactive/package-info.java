@@ -0,0 +1,4 @@
+/**
+ * Spring Data reactive Mongo repositories, used by the reactive profile.
+ */
+package com.migros.courierproducerapp.repository.reactive;
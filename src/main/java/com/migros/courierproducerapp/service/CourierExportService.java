@@ -0,0 +1,108 @@
+package com.migros.courierproducerapp.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.migros.courierproducerapp.domain.CourierLocation;
+import com.migros.courierproducerapp.repository.CourierRepository;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Iterator;
+
+/**
+ * Export of courier pings as NDJSON, one JSON object per line, with the fields of the REST representation.
+ * <p>
+ * Pings are read from a Mongo cursor as raw documents and written straight to the output, so memory stays
+ * constant whatever the number of pings.
+ */
+@Service
+public class CourierExportService {
+
+    private final Logger log = LoggerFactory.getLogger(CourierExportService.class);
+
+    private final CourierRepository courierRepository;
+
+    private final JsonFactory jsonFactory;
+
+    public CourierExportService(CourierRepository courierRepository, ObjectMapper objectMapper) {
+        this.courierRepository = courierRepository;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Export the pings of a courier, or of every courier, within a time range.
+     *
+     * @param courierID the courierID, or {@code null} for every courier.
+     * @param from      the inclusive start of the range, or {@code null}.
+     * @param to        the exclusive end of the range, or {@code null}.
+     * @param out       the output, not closed.
+     * @return the number of pings written.
+     * @throws IOException if the output cannot be written.
+     */
+    public long export(String courierID, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        log.debug("Request to export Couriers : {} from {} to {}", courierID, from, to);
+        try (CloseableIterator<Document> documents = courierRepository.streamExport(courierID, from, to)) {
+            long rows = write(documents, out);
+            log.debug("Exported {} Couriers", rows);
+            return rows;
+        }
+    }
+
+    /**
+     * Write raw courier documents as NDJSON.
+     *
+     * @param documents the documents.
+     * @param out       the output, flushed but not closed.
+     * @return the number of documents written.
+     * @throws IOException if the output cannot be written.
+     */
+    public long write(Iterator<Document> documents, OutputStream out) throws IOException {
+        long rows = 0;
+        try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            while (documents.hasNext()) {
+                writeCourier(generator, documents.next());
+                generator.writeRaw('\n');
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static void writeCourier(JsonGenerator generator, Document document) throws IOException {
+        generator.writeStartObject();
+        Object id = document.get("_id");
+        generator.writeStringField("id", id instanceof ObjectId ? ((ObjectId) id).toHexString() : String.valueOf(id));
+        generator.writeStringField("courierID", document.getString("courierID"));
+        writeNumberField(generator, "lat", document.get("lat"));
+        writeNumberField(generator, "lng", document.get("lng"));
+        Date timestamp = document.getDate("timestamp");
+        if (timestamp == null) {
+            generator.writeNullField("timestamp");
+        } else {
+            generator.writeStringField("timestamp", DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(
+                CourierLocation.toLocalDateTime(CourierLocation.toEpochMillis(timestamp))));
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeNumberField(JsonGenerator generator, String name, Object value) throws IOException {
+        if (value instanceof Number) {
+            generator.writeNumberField(name, ((Number) value).doubleValue());
+        } else {
+            generator.writeNullField(name);
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package com.migros.courierproducerapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.migros.courierproducerapp.config.ApplicationProperties;
+import com.migros.courierproducerapp.domain.CourierLocation;
+import com.migros.courierproducerapp.service.dto.CourierDTO;
+import com.migros.courierproducerapp.util.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live feed of the courier locations as server-sent events, per courier or per bounding box.
+ * <p>
+ * The ingest path offers every persisted ping to the matching subscribers, which never blocks it: each subscriber
+ * buffers the latest undelivered update per courier, so the updates a subscriber could not write yet are coalesced
+ * into the latest one. A dispatcher thread drains the buffer of a subscriber when it has updates. An update is
+ * serialized once, whatever the number of subscribers it is sent to.
+ * <p>
+ * A subscriber whose buffer holds {@code maxPending} couriers is too slow: with the {@link BackpressurePolicy#DISCONNECT}
+ * policy its stream is closed, with {@link BackpressurePolicy#DROP} the updates of further couriers are dropped until it
+ * catches up, and it is sent their count.
+ * <p>
+ * Writes to a subscriber block while its client does not read. A subscriber whose write has been blocked for
+ * {@code write-timeout} is disconnected on its next update or heartbeat, and its dispatcher thread is interrupted out
+ * of the write, so that stalled clients cannot hold every dispatcher thread.
+ */
+@Service
+public class CourierFeedService {
+
+    public static final String LOCATION_EVENT = "location";
+
+    public static final String DROPPED_EVENT = "dropped";
+
+    /**
+     * What to do with a subscriber which does not keep up with its updates.
+     */
+    public enum BackpressurePolicy {
+
+        /**
+         * Close the stream, the client reconnects and starts again from the latest locations.
+         */
+        DISCONNECT,
+
+        /**
+         * Drop the updates of couriers not buffered yet, and report their count in a {@code dropped} event.
+         */
+        DROP
+    }
+
+    private final Logger log = LoggerFactory.getLogger(CourierFeedService.class);
+
+    private final ApplicationProperties.Feed properties;
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, Set<Subscriber>> courierSubscribers = new ConcurrentHashMap<>();
+
+    private final Set<Subscriber> regionSubscribers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final ExecutorService dispatcher;
+
+    private final ScheduledExecutorService heartbeats;
+
+    private final long writeTimeoutNanos;
+
+    public CourierFeedService(ApplicationProperties applicationProperties, ObjectMapper objectMapper) {
+        this.properties = applicationProperties.getFeed();
+        this.objectMapper = objectMapper;
+        this.writeTimeoutNanos = properties.getWriteTimeout().toNanos();
+        this.dispatcher = applicationProperties.getExecution().isVirtualThreads() && VirtualThreads.isSupported()
+            ? VirtualThreads.newThreadPerTaskExecutor("courier-feed-")
+            : Executors.newFixedThreadPool(properties.getDispatcherThreads(), daemonThreadFactory("courier-feed-"));
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("courier-feed-heartbeat-"));
+        long heartbeatMillis = properties.getHeartbeat().toMillis();
+        heartbeats.scheduleAtFixedRate(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Subscribe to the locations of a courier.
+     *
+     * @param courierID  the courierID.
+     * @param latest     the latest location of the courier, sent first, or {@code null}.
+     * @param policy     the backpressure policy of the subscriber.
+     * @param maxPending the maximum number of couriers buffered, bounded by {@code application.feed.max-pending}.
+     * @return the stream of the updates.
+     * @throws CourierServiceException if there are too many subscribers.
+     */
+    public SseEmitter subscribeCourier(String courierID, CourierLocation latest, BackpressurePolicy policy, int maxPending) {
+        Subscriber subscriber = register(new Subscriber(courierID, 0, 0, 0, 0, policy, maxPending));
+        if (latest != null) {
+            subscriber.offer(new Update(latest));
+        }
+        courierSubscribers.computeIfAbsent(courierID, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        log.debug("Live feed subscriber of Courier {}", courierID);
+        return subscriber.emitter;
+    }
+
+    /**
+     * Subscribe to the locations of every courier within a bounding box. A box with {@code minLng > maxLng}
+     * crosses the antimeridian.
+     *
+     * @param minLat     the south bound.
+     * @param minLng     the west bound.
+     * @param maxLat     the north bound.
+     * @param maxLng     the east bound.
+     * @param policy     the backpressure policy of the subscriber.
+     * @param maxPending the maximum number of couriers buffered, bounded by {@code application.feed.max-pending}.
+     * @return the stream of the updates.
+     * @throws CourierServiceException if there are too many subscribers.
+     */
+    public SseEmitter subscribeRegion(double minLat, double minLng, double maxLat, double maxLng,
+                                      BackpressurePolicy policy, int maxPending) {
+        Subscriber subscriber = register(new Subscriber(null, minLat, minLng, maxLat, maxLng, policy, maxPending));
+        regionSubscribers.add(subscriber);
+        log.debug("Live feed subscriber of region {},{} {},{}", minLat, minLng, maxLat, maxLng);
+        return subscriber.emitter;
+    }
+
+    /**
+     * Offer a persisted ping to its subscribers.
+     *
+     * @param location the location of the ping.
+     */
+    public void onLocation(CourierLocation location) {
+        if (subscriberCount.get() == 0) {
+            return;
+        }
+        Update update = new Update(location);
+        Set<Subscriber> subscribers = courierSubscribers.get(location.getCourierID());
+        if (subscribers != null) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(update);
+            }
+        }
+        for (Subscriber subscriber : regionSubscribers) {
+            if (subscriber.contains(location)) {
+                subscriber.offer(update);
+            }
+        }
+    }
+
+    /**
+     * Offer a batch of persisted pings, see {@link #onLocation(CourierLocation)}.
+     *
+     * @param locations the locations of the pings.
+     */
+    public void onLocations(List<CourierLocation> locations) {
+        if (subscriberCount.get() == 0) {
+            return;
+        }
+        for (CourierLocation location : locations) {
+            onLocation(location);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+        dispatcher.shutdownNow();
+        courierSubscribers.values().forEach(subscribers -> subscribers.forEach(Subscriber::close));
+        regionSubscribers.forEach(Subscriber::close);
+    }
+
+    private Subscriber register(Subscriber subscriber) {
+        if (subscriberCount.incrementAndGet() > properties.getMaxSubscribers()) {
+            subscriberCount.decrementAndGet();
+            throw new CourierServiceException("Too many live feed subscribers");
+        }
+        subscriber.emitter.onCompletion(() -> unregister(subscriber));
+        subscriber.emitter.onTimeout(subscriber::close);
+        subscriber.emitter.onError(e -> subscriber.close());
+        return subscriber;
+    }
+
+    private void unregister(Subscriber subscriber) {
+        boolean removed;
+        if (subscriber.courierID == null) {
+            removed = regionSubscribers.remove(subscriber);
+        } else {
+            removed = false;
+            Set<Subscriber> subscribers = courierSubscribers.get(subscriber.courierID);
+            if (subscribers != null) {
+                removed = subscribers.remove(subscriber);
+                if (subscribers.isEmpty()) {
+                    courierSubscribers.remove(subscriber.courierID, subscribers);
+                }
+            }
+        }
+        if (removed) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    private void heartbeat() {
+        courierSubscribers.values().forEach(subscribers -> subscribers.forEach(Subscriber::heartbeat));
+        regionSubscribers.forEach(Subscriber::heartbeat);
+    }
+
+    private static CustomizableThreadFactory daemonThreadFactory(String prefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    /**
+     * A location offered to subscribers, serialized on its first send.
+     */
+    private final class Update {
+
+        private final CourierLocation location;
+
+        private volatile String json;
+
+        private Update(CourierLocation location) {
+            this.location = location;
+        }
+
+        private String toJson() throws JsonProcessingException {
+            String value = json;
+            if (value == null) {
+                value = objectMapper.writeValueAsString(new CourierDTO(location));
+                json = value;
+            }
+            return value;
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+
+        /**
+         * The courier subscribed to, or {@code null} for a region.
+         */
+        private final String courierID;
+
+        private final double minLat;
+
+        private final double minLng;
+
+        private final double maxLat;
+
+        private final double maxLng;
+
+        private final BackpressurePolicy policy;
+
+        private final int maxPending;
+
+        /**
+         * Latest undelivered update, by courierID.
+         */
+        private final ConcurrentHashMap<String, Update> pending = new ConcurrentHashMap<>();
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private final AtomicLong dropped = new AtomicLong();
+
+        private volatile boolean closed;
+
+        /**
+         * Guards {@link #sender}, so that it is only interrupted while writing.
+         */
+        private final Object sendLock = new Object();
+
+        /**
+         * Thread writing to the subscriber, and since when, or {@code null}.
+         */
+        private Thread sender;
+
+        private volatile long sendingSince;
+
+        private boolean senderInterrupted;
+
+        private Subscriber(String courierID, double minLat, double minLng, double maxLat, double maxLng,
+                           BackpressurePolicy policy, int maxPending) {
+            this.courierID = courierID;
+            this.minLat = minLat;
+            this.minLng = minLng;
+            this.maxLat = maxLat;
+            this.maxLng = maxLng;
+            this.policy = policy;
+            this.maxPending = maxPending > 0 ? Math.min(maxPending, properties.getMaxPending()) : properties.getMaxPending();
+        }
+
+        private boolean contains(CourierLocation location) {
+            double lat = location.getLat();
+            double lng = location.getLng();
+            if (lat < minLat || lat > maxLat) {
+                return false;
+            }
+            return minLng <= maxLng ? lng >= minLng && lng <= maxLng : lng >= minLng || lng <= maxLng;
+        }
+
+        private void offer(Update update) {
+            if (closed || disconnectIfStalled()) {
+                return;
+            }
+            String key = update.location.getCourierID();
+            if (pending.size() >= maxPending && !pending.containsKey(key)) {
+                if (policy == BackpressurePolicy.DISCONNECT) {
+                    log.debug("Closing a slow live feed subscriber with {} pending couriers", pending.size());
+                    close();
+                } else {
+                    dropped.incrementAndGet();
+                }
+                return;
+            }
+            pending.merge(key, update,
+                (previous, next) -> next.location.getTimestamp() >= previous.location.getTimestamp() ? next : previous);
+            schedule();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    for (String key : pending.keySet()) {
+                        Update update = pending.remove(key);
+                        if (update != null && !closed) {
+                            send(SseEmitter.event().name(LOCATION_EVENT).data(update.toJson(), MediaType.APPLICATION_JSON));
+                        }
+                    }
+                    long count = dropped.getAndSet(0);
+                    if (count > 0) {
+                        send(SseEmitter.event().name(DROPPED_EVENT).data(count));
+                    }
+                    draining.set(false);
+                } while (!closed && (!pending.isEmpty() || dropped.get() > 0) && draining.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Live feed subscriber gone: {}", e.getMessage());
+                draining.set(false);
+                close();
+            }
+        }
+
+        private void heartbeat() {
+            if (closed || disconnectIfStalled() || !draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                dispatcher.execute(() -> {
+                    try {
+                        send(SseEmitter.event().comment("heartbeat"));
+                        draining.set(false);
+                        if (!pending.isEmpty()) {
+                            schedule();
+                        }
+                    } catch (IOException | IllegalStateException e) {
+                        draining.set(false);
+                        close();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            synchronized (sendLock) {
+                sender = Thread.currentThread();
+                sendingSince = System.nanoTime();
+            }
+            try {
+                emitter.send(event);
+            } finally {
+                synchronized (sendLock) {
+                    sender = null;
+                    sendingSince = 0;
+                    if (senderInterrupted) {
+                        senderInterrupted = false;
+                        Thread.interrupted();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Disconnect the subscriber if a write has been blocked for longer than the write timeout.
+         *
+         * @return whether the subscriber was disconnected.
+         */
+        private boolean disconnectIfStalled() {
+            long since = sendingSince;
+            if (since == 0 || System.nanoTime() - since < writeTimeoutNanos) {
+                return false;
+            }
+            log.debug("Closing a live feed subscriber whose write is blocked");
+            // The emitter is locked by the blocked write, it is completed with an error once the write is interrupted
+            closed = true;
+            pending.clear();
+            unregister(this);
+            synchronized (sendLock) {
+                if (sender != null) {
+                    senderInterrupted = true;
+                    sender.interrupt();
+                }
+            }
+            return true;
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.clear();
+            unregister(this);
+            try {
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                log.trace("Live feed subscriber already completed");
+            }
+        }
+    }
+}
@@ -1,63 +1,269 @@
 package com.migros.courierproducerapp.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.migros.courierproducerapp.config.ApplicationProperties;
 import com.migros.courierproducerapp.config.KafkaProperties;
 import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.domain.CourierLocation;
 import com.migros.courierproducerapp.service.dto.CourierDTO;
+import com.migros.courierproducerapp.service.dto.StoreEntranceDTO;
+import com.migros.courierproducerapp.service.kafka.CourierBinaryCodec;
+import com.migros.courierproducerapp.service.kafka.CourierDTOSerializer;
+import com.migros.courierproducerapp.service.kafka.StoreEntranceDTOSerializer;
+import com.migros.courierproducerapp.util.RequestTiming;
+import com.migros.courierproducerapp.util.VirtualThreads;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
+@DependsOn("kafkaTopicConfiguration")
 public class CourierKafkaService {
 
 
     private final Logger log = LoggerFactory.getLogger(CourierKafkaService.class);
 
-    private static final String TOPIC = "topic_courier";
-
     private final KafkaProperties kafkaProperties;
 
-    private final static Logger logger = LoggerFactory.getLogger(CourierKafkaService.class);
-    private KafkaProducer<String, String> producer;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    /**
+     * Single producer shared by every topic, values are serialized by the service according to their topic.
+     * A {@link Producer} bean, such as the in-memory stand-in of the load test, replaces the Kafka producer.
+     */
+    private Producer<String, byte[]> producer;
+
+    private final ObjectProvider<Producer<String, byte[]>> producerProvider;
+
+    /**
+     * Encodes a location in the format of the courier topic.
+     */
+    private Function<CourierLocation, byte[]> courierEncoder;
+
+    private final Serializer<StoreEntranceDTO> storeEntranceSerializer = new StoreEntranceDTOSerializer();
+
+    /**
+     * Permits for records handed to the producer and not yet acknowledged by the broker.
+     */
+    private final Semaphore pendingRecords;
+
+    /**
+     * Completes the futures of acknowledged records, so that their dependent actions do not run on the producer
+     * I/O thread. {@code null} completes them on the I/O thread.
+     */
+    private final Executor callbackExecutor;
+
+    private final List<Runnable> shutdownListeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicBoolean shutdown = new AtomicBoolean();
+
+    private final CourierMetrics courierMetrics;
 
-    public CourierKafkaService(KafkaProperties kafkaProperties) {
+    public CourierKafkaService(KafkaProperties kafkaProperties, ApplicationProperties applicationProperties,
+                               CourierMetrics courierMetrics, ObjectProvider<Producer<String, byte[]>> producerProvider) {
         this.kafkaProperties = kafkaProperties;
+        this.producerProvider = producerProvider;
+        this.courierMetrics = courierMetrics;
+        this.pendingRecords = new Semaphore(kafkaProperties.getPublisher().getMaxPendingRecords());
+        this.callbackExecutor = applicationProperties.getExecution().isVirtualThreads() && VirtualThreads.isSupported()
+            ? VirtualThreads.newThreadPerTaskExecutor("kafka-callback-") : null;
     }
 
     @PostConstruct
     public void initialize(){
         log.info("Kafka producer initializing...");
-        this.producer = new KafkaProducer<>(kafkaProperties.getProducerProps());
+        String courierTopic = kafkaProperties.getCourierTopic().getName();
+        if (kafkaProperties.getCourierTopic().getFormat() == KafkaProperties.WireFormat.BINARY) {
+            this.courierEncoder = location -> {
+                try {
+                    return CourierBinaryCodec.encode(location);
+                } catch (IllegalArgumentException e) {
+                    throw new SerializationException("Could not serialize courier " + location.getCourierID(), e);
+                }
+            };
+        } else {
+            Serializer<CourierDTO> serializer = new CourierDTOSerializer();
+            this.courierEncoder = location -> serializer.serialize(courierTopic, new CourierDTO(location));
+        }
+        this.producer = producerProvider.getIfAvailable(() ->
+            new KafkaProducer<>(kafkaProperties.getProducerProps(), new StringSerializer(), new ByteArraySerializer()));
+        courierMetrics.producerBuffer(producer, pendingRecords, kafkaProperties.getPublisher().getMaxPendingRecords());
         Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
         log.info("Kafka producer initialized");
     }
 
-    public void alertCourierStatus(Courier courier) {
+    /**
+     * Publish the status of a courier.
+     * <p>
+     * Records are keyed by courierID, so all pings of a courier land on the same partition in order.
+     * <p>
+     * The record is sent asynchronously and the returned future completes once the broker acknowledged it.
+     * When too many records are pending, the caller waits at most {@code kafka.publisher.acquire-timeout-ms}
+     * and the future then fails with a {@link CourierServiceException} instead of blocking on a full producer buffer.
+     * <p>
+     * The serialization of the record and the time until its acknowledgement are recorded by {@link CourierMetrics}.
+     *
+     * @param courier the courier to publish.
+     * @return the metadata of the acknowledged record.
+     */
+    public CompletableFuture<RecordMetadata> alertCourierStatus(Courier courier) {
+        return alertCourierLocation(CourierLocation.of(courier));
+    }
+
+    /**
+     * Publish the location of a courier, see {@link #alertCourierStatus(Courier)}. In the binary format,
+     * the record is encoded straight from the primitive fields of the location.
+     *
+     * @param location the location to publish.
+     * @return the metadata of the acknowledged record.
+     */
+    public CompletableFuture<RecordMetadata> alertCourierLocation(CourierLocation location) {
+        return send(kafkaProperties.getCourierTopic().getName(), location.getCourierID(), () -> courierEncoder.apply(location),
+            kafkaProperties.getPublisher().getAcquireTimeoutMs());
+    }
+
+    /**
+     * Publish the location of a courier without ever waiting for a free slot, for callers running on
+     * non-blocking threads: when too many records are pending, the future fails at once.
+     *
+     * @param location the location to publish.
+     * @return a lazy {@link Mono} of the metadata of the acknowledged record, the record is sent on subscription.
+     */
+    public Mono<RecordMetadata> publishCourierLocation(CourierLocation location) {
+        return Mono.fromFuture(() -> send(kafkaProperties.getCourierTopic().getName(), location.getCourierID(),
+            () -> courierEncoder.apply(location), 0));
+    }
+
+    /**
+     * Publish the entrance of a courier into a store, keyed by courierID like its statuses.
+     *
+     * @param entrance the entrance to publish.
+     * @return the metadata of the acknowledged record.
+     */
+    public CompletableFuture<RecordMetadata> alertStoreEntrance(StoreEntranceDTO entrance) {
+        String topic = kafkaProperties.getStoreEntranceTopic().getName();
+        return send(topic, entrance.getCourierID(), () -> storeEntranceSerializer.serialize(topic, entrance),
+            kafkaProperties.getPublisher().getAcquireTimeoutMs());
+    }
+
+    /**
+     * Publish a batch of couriers as one burst: every record is handed to the producer
+     * without waiting, so they are pipelined into the producer batches of their partitions.
+     *
+     * @param couriers the couriers to publish.
+     * @return a future completing once every record is acknowledged, or failing with the first error.
+     */
+    public CompletableFuture<Void> alertCourierStatuses(List<Courier> couriers) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[couriers.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = alertCourierStatus(couriers.get(i));
+        }
+        log.debug("{} records have been send", couriers.size());
+        return CompletableFuture.allOf(futures);
+    }
+
+    private CompletableFuture<RecordMetadata> send(String topic, String key, Supplier<byte[]> value, long acquireTimeoutMs) {
+        CompletableFuture<RecordMetadata> future = new CompletableFuture<>();
+        CourierMetrics.KafkaTopicMeters meters = courierMetrics.kafkaTopic(topic);
+        long acquire = System.nanoTime();
+        boolean acquired = acquirePendingRecord(acquireTimeoutMs);
+        long start = System.nanoTime();
+        if (!acquired) {
+            RequestTiming.record(RequestTiming.KAFKA_SEND, start - acquire);
+            log.warn("Kafka producer is saturated, record {} on {} is rejected", key, topic);
+            meters.getRejected().increment();
+            future.completeExceptionally(new CourierServiceException("Kafka producer is saturated"));
+            return future;
+        }
         try {
-            CourierDTO courierDTO = new CourierDTO(courier);
-            objectMapper.registerModule(new JavaTimeModule());
-            objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-            String message = objectMapper.writeValueAsString(courierDTO);
-            ProducerRecord<String, String> record = new ProducerRecord<>(TOPIC, message);
-            producer.send(record);
-            log.debug("Record has been send: {}", record);
-        } catch (JsonProcessingException e) {
-            logger.error("Could not send store alert", e);
-            throw new CourierServiceException(e);
+            byte[] bytes = value.get();
+            long sent = System.nanoTime();
+            meters.getSerialization().record(sent - start, TimeUnit.NANOSECONDS);
+            producer.send(new ProducerRecord<>(topic, key, bytes), (metadata, exception) -> {
+                pendingRecords.release();
+                meters.getAck(exception == null).record(System.nanoTime() - sent, TimeUnit.NANOSECONDS);
+                if (exception != null) {
+                    log.error("Could not send record {} on {}", key, topic, exception);
+                }
+                if (callbackExecutor == null) {
+                    complete(future, metadata, exception);
+                } else {
+                    callbackExecutor.execute(() -> complete(future, metadata, exception));
+                }
+            });
+            RequestTiming.record(RequestTiming.KAFKA_SEND, start - acquire + System.nanoTime() - sent);
+        } catch (RuntimeException e) {
+            // Serialization errors, and a closed producer, are thrown instead of being passed to the callback
+            pendingRecords.release();
+            log.error("Could not send record {} on {}", key, topic, e);
+            future.completeExceptionally(e);
+            return future;
         }
+        log.debug("Record {} has been send on {}", key, topic);
+        return future;
     }
+
+    private static void complete(CompletableFuture<RecordMetadata> future, RecordMetadata metadata, Exception exception) {
+        if (exception != null) {
+            future.completeExceptionally(exception);
+        } else {
+            future.complete(metadata);
+        }
+    }
+
+    private boolean acquirePendingRecord(long timeoutMs) {
+        if (timeoutMs <= 0) {
+            return pendingRecords.tryAcquire();
+        }
+        try {
+            return pendingRecords.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Register an action run by {@link #shutdown()} before the producer is closed, to hand over the last records.
+     *
+     * @param listener the action.
+     */
+    public void addShutdownListener(Runnable listener) {
+        shutdownListeners.add(listener);
+    }
+
     @PreDestroy
     public void shutdown() {
+        if (!shutdown.compareAndSet(false, true)) {
+            return;
+        }
+        for (Runnable listener : shutdownListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.error("Shutdown listener failed", e);
+            }
+        }
         log.info("Shutdown Kafka producer");
         producer.close();
     }
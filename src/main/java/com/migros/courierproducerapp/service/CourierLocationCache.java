@@ -0,0 +1,174 @@
+package com.migros.courierproducerapp.service;
+
+import com.migros.courierproducerapp.config.ApplicationProperties;
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.domain.CourierLocation;
+import com.migros.courierproducerapp.repository.CourierRepository;
+import com.migros.courierproducerapp.util.GeoGridIndex;
+import com.migros.courierproducerapp.util.GeoUtils;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory table of the latest known location of every courier.
+ * <p>
+ * Updates are merged on the timestamp, the newest ping wins whatever the arrival order, so the write path
+ * and the warm-up from Mongo at startup can run concurrently. Once warmed up, reads never touch Mongo.
+ * Each instance only sees the pings it ingests after its warm-up.
+ * <p>
+ * Locations are also kept in a {@link GeoGridIndex}, moved within the same atomic update, to answer proximity
+ * queries without scanning every courier.
+ */
+@Service
+public class CourierLocationCache {
+
+    private final Logger log = LoggerFactory.getLogger(CourierLocationCache.class);
+
+    private final ConcurrentHashMap<String, CourierLocation> locations = new ConcurrentHashMap<>(16384);
+
+    private final GeoGridIndex gridIndex;
+
+    private final long maxIndexCells;
+
+    private final CourierRepository courierRepository;
+
+    private final MongoTemplate mongoTemplate;
+
+    private volatile boolean warmedUp;
+
+    public CourierLocationCache(CourierRepository courierRepository, MongoTemplate mongoTemplate, ApplicationProperties applicationProperties) {
+        this.courierRepository = courierRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.gridIndex = new GeoGridIndex(applicationProperties.getGeo().getCellSizeMeters());
+        this.maxIndexCells = applicationProperties.getGeo().getMaxIndexCells();
+    }
+
+    /**
+     * Load the latest location of every courier, reading the {@code (courierID, timestamp)} index backwards: both
+     * keys are sorted descending, as a sort which only reverses one of them cannot use the index and sorts the whole
+     * collection.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        log.info("Warming up the courier location cache");
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.sort(Sort.by(Sort.Direction.DESC, "courierID", "timestamp")),
+            Aggregation.group("courierID").first("lat").as("lat").first("lng").as("lng").first("timestamp").as("timestamp"))
+            .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        try (CloseableIterator<Document> latest = mongoTemplate.aggregateStream(aggregation, "courier", Document.class)) {
+            while (latest.hasNext()) {
+                Document document = latest.next();
+                update(new CourierLocation(document.getString("_id"), document.getDouble("lat"), document.getDouble("lng"),
+                    CourierLocation.toEpochMillis(document.getDate("timestamp"))));
+            }
+            warmedUp = true;
+            log.info("Courier location cache warmed up with {} couriers", locations.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not warm up the courier location cache, reads fall back to Mongo: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Record a location, unless a newer one is already known for the courier.
+     *
+     * @param location the location.
+     */
+    public void update(CourierLocation location) {
+        locations.compute(location.getCourierID(), (courierID, current) -> {
+            if (current != null && location.getTimestamp() < current.getTimestamp()) {
+                return current;
+            }
+            gridIndex.put(courierID, location.getLat(), location.getLng());
+            return location;
+        });
+    }
+
+    /**
+     * Reload the location of a courier from Mongo, after one of its pings was deleted.
+     *
+     * @param courierID the courierID.
+     */
+    public void refresh(String courierID) {
+        Optional<Courier> latest = courierRepository.findFirstByCourierIDOrderByTimestampDesc(courierID);
+        locations.compute(courierID, (key, current) -> {
+            if (!latest.isPresent()) {
+                gridIndex.remove(courierID);
+                return null;
+            }
+            gridIndex.put(courierID, latest.get().getLat(), latest.get().getLng());
+            return CourierLocation.of(latest.get());
+        });
+    }
+
+    /**
+     * Get the latest location of a courier.
+     *
+     * @param courierID the courierID.
+     * @return the location, or empty if the courier is unknown.
+     */
+    public Optional<CourierLocation> get(String courierID) {
+        CourierLocation location = locations.get(courierID);
+        if (location == null && !warmedUp) {
+            return courierRepository.findFirstByCourierIDOrderByTimestampDesc(courierID).map(CourierLocation::of);
+        }
+        return Optional.ofNullable(location);
+    }
+
+    /**
+     * Whether a proximity query can be answered from memory: the cache is warmed up and the query
+     * covers a bounded number of index cells.
+     *
+     * @param lat          the lat of the center.
+     * @param radiusMeters the radius.
+     * @return true if {@link #findNear(double, double, double)} can be used.
+     */
+    public boolean canFindNear(double lat, double radiusMeters) {
+        return warmedUp && gridIndex.cellsToVisit(lat, radiusMeters) <= maxIndexCells;
+    }
+
+    /**
+     * Get the couriers whose latest location is within a radius of a point, nearest first.
+     *
+     * @param lat          the lat of the center.
+     * @param lng          the lng of the center.
+     * @param radiusMeters the radius.
+     * @return the locations.
+     */
+    public List<CourierLocation> findNear(double lat, double lng, double radiusMeters) {
+        List<CourierLocation> near = new ArrayList<>();
+        gridIndex.forEachCandidate(lat, lng, radiusMeters, courierID -> {
+            CourierLocation location = locations.get(courierID);
+            if (location != null && GeoUtils.haversine(lat, lng, location.getLat(), location.getLng()) <= radiusMeters) {
+                near.add(location);
+            }
+        });
+        near.sort(Comparator.comparingDouble(location -> GeoUtils.haversine(lat, lng, location.getLat(), location.getLng())));
+        return near;
+    }
+
+    /**
+     * Get the latest location of every known courier.
+     *
+     * @return an unmodifiable live view of the locations.
+     */
+    public Collection<CourierLocation> getAll() {
+        return Collections.unmodifiableCollection(locations.values());
+    }
+}
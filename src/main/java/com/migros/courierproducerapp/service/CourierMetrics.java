@@ -0,0 +1,313 @@
+package com.migros.courierproducerapp.service;
+
+import com.migros.courierproducerapp.util.RequestTiming;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the ingest path, from the validation of a ping to the acknowledgement of its Kafka record.
+ * <p>
+ * Every tag takes its value from a fixed set (ingest paths, write operations, distance computations) or from
+ * the configured topics, never from a courier or a request, so the number of series stays constant. Timers
+ * publish a histogram bounded by the expected range of their stage, percentiles are computed by the server.
+ * Stage timers also add their durations to the {@link RequestTiming} of the current request.
+ */
+@Component
+public class CourierMetrics {
+
+    public static final String PATH_SINGLE = "single";
+
+    public static final String PATH_BATCH = "batch";
+
+    public static final String PATH_WRITE_BEHIND = "write_behind";
+
+    public static final String PATH_OUTBOX = "outbox";
+
+    public static final String OPERATION_INSERT = "insert";
+
+    public static final String OPERATION_UPDATE = "update";
+
+    public static final String OPERATION_BULK_INSERT = "bulk_insert";
+
+    public static final String DISTANCE_RANGE = "range";
+
+    public static final String DISTANCE_REBUILD = "rebuild";
+
+    public static final String DISTANCE_FOLD = "fold";
+
+    private final MeterRegistry registry;
+
+    private final Map<String, StageTimer> validationTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, StageTimer> mongoWriteTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, DistributionSummary> batchSizes = new ConcurrentHashMap<>();
+
+    private final Map<String, KafkaTopicMeters> kafkaTopics = new ConcurrentHashMap<>();
+
+    private final Map<String, DistanceMeters> distances = new ConcurrentHashMap<>();
+
+    private final Counter writeBehindFailures;
+
+    public CourierMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.writeBehindFailures = Counter.builder("courier.ingest.write_behind.failed")
+            .description("Pings accepted by the write-behind ingest that Mongo refused, moved to its dead-letter journal")
+            .baseUnit("pings")
+            .register(registry);
+    }
+
+    /**
+     * Get the timer of the validation of pings on an ingest path.
+     *
+     * @param path the ingest path, one of the {@code PATH_} constants.
+     * @return the timer.
+     */
+    public StageTimer validation(String path) {
+        return meter(validationTimers, path, key -> new StageTimer(RequestTiming.VALIDATION, Timer.builder("courier.ingest.validation")
+            .description("Validation of an incoming ping")
+            .tag("path", key)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(1000))
+            .maximumExpectedValue(Duration.ofMillis(10))
+            .register(registry)));
+    }
+
+    /**
+     * Get the timer of a Mongo write of pings.
+     *
+     * @param operation the write, one of the {@code OPERATION_} constants.
+     * @return the timer.
+     */
+    public StageTimer mongoWrite(String operation) {
+        return meter(mongoWriteTimers, operation, key -> new StageTimer(RequestTiming.MONGO, Timer.builder("courier.mongo.write")
+            .description("Write of pings to the courier collection")
+            .tag("operation", key)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(10))
+            .register(registry)));
+    }
+
+    /**
+     * Record the number of pings handled at once on an ingest path.
+     *
+     * @param path the ingest path, one of the {@code PATH_} constants.
+     * @param size the number of pings.
+     */
+    public void batchSize(String path, int size) {
+        meter(batchSizes, path, key -> DistributionSummary.builder("courier.ingest.batch.size")
+            .description("Number of pings written or published at once")
+            .baseUnit("pings")
+            .tag("path", key)
+            .sla(1, 10, 100, 500, 1000, 5000, 10000)
+            .register(registry))
+            .record(size);
+    }
+
+    /**
+     * Count the pings accepted by the write-behind ingest that could not be written.
+     *
+     * @param count the number of pings.
+     */
+    public void writeBehindFailed(int count) {
+        writeBehindFailures.increment(count);
+    }
+
+    /**
+     * Get the meters of the records sent to a topic.
+     *
+     * @param topic the configured topic.
+     * @return the meters.
+     */
+    public KafkaTopicMeters kafkaTopic(String topic) {
+        return meter(kafkaTopics, topic, key -> new KafkaTopicMeters(registry, key));
+    }
+
+    /**
+     * Register the gauges of the producer buffers: the records waiting for an acknowledgement, out of the
+     * {@code kafka.publisher.max-pending-records} permits, and the used share of {@code buffer.memory}.
+     *
+     * @param producer       the producer.
+     * @param pendingRecords the permits of the pending records.
+     * @param maxPending     the number of permits.
+     */
+    public void producerBuffer(Producer<?, ?> producer, Semaphore pendingRecords, int maxPending) {
+        Gauge.builder("courier.kafka.pending.records", pendingRecords, permits -> maxPending - permits.availablePermits())
+            .description("Records handed to the producer and not yet acknowledged")
+            .register(registry);
+        Gauge.builder("courier.kafka.pending.utilization", pendingRecords,
+            permits -> (maxPending - permits.availablePermits()) / (double) maxPending)
+            .description("Share of the pending record permits in use")
+            .register(registry);
+        Metric available = producerMetric(producer, "buffer-available-bytes");
+        Metric total = producerMetric(producer, "buffer-total-bytes");
+        if (available != null && total != null) {
+            Gauge.builder("courier.kafka.buffer.utilization", this,
+                metrics -> 1 - value(available) / value(total))
+                .description("Share of the producer buffer memory holding unsent records")
+                .register(registry);
+        }
+    }
+
+    /**
+     * Record a distance computation over a track.
+     *
+     * @param computation the computation, one of the {@code DISTANCE_} constants.
+     * @param points      the number of pings read.
+     */
+    public void distance(String computation, long points) {
+        DistanceMeters meters = meter(distances, computation, key -> new DistanceMeters(registry, key));
+        meters.calls.increment();
+        meters.points.record(points);
+    }
+
+    /**
+     * Get a cached meter, only locking the map on the first use of its key.
+     */
+    private static <T> T meter(Map<String, T> meters, String key, Function<String, T> factory) {
+        T meter = meters.get(key);
+        return meter != null ? meter : meters.computeIfAbsent(key, factory);
+    }
+
+    private static Metric producerMetric(Producer<?, ?> producer, String name) {
+        for (Map.Entry<MetricName, ? extends Metric> metric : producer.metrics().entrySet()) {
+            if (metric.getKey().name().equals(name) && metric.getKey().group().equals("producer-metrics")) {
+                return metric.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static double value(Metric metric) {
+        Object value = metric.metricValue();
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    /**
+     * Timer of a stage of the ingest path, also adding its durations to the current request.
+     */
+    public static final class StageTimer {
+
+        private final String stage;
+
+        private final Timer timer;
+
+        private StageTimer(String stage, Timer timer) {
+            this.stage = stage;
+            this.timer = timer;
+        }
+
+        public void record(long amount, TimeUnit unit) {
+            long nanos = unit.toNanos(amount);
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+            RequestTiming.record(stage, nanos);
+        }
+
+        public <T> T record(Supplier<T> f) {
+            long start = System.nanoTime();
+            try {
+                return f.get();
+            } finally {
+                record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        public Timer getTimer() {
+            return timer;
+        }
+    }
+
+    /**
+     * Meters of the records sent to a topic.
+     */
+    public static final class KafkaTopicMeters {
+
+        private final StageTimer serialization;
+
+        private final Timer acknowledged;
+
+        private final Timer failed;
+
+        private final Counter rejected;
+
+        private KafkaTopicMeters(MeterRegistry registry, String topic) {
+            this.serialization = new StageTimer(RequestTiming.KAFKA_SERIALIZE, Timer.builder("courier.kafka.serialization")
+                .description("Serialization of a record value")
+                .tag("topic", topic)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(500))
+                .maximumExpectedValue(Duration.ofMillis(10))
+                .register(registry));
+            this.acknowledged = ack(registry, topic, "success");
+            this.failed = ack(registry, topic, "error");
+            this.rejected = Counter.builder("courier.kafka.rejected")
+                .description("Records rejected because the producer was saturated")
+                .tag("topic", topic)
+                .register(registry);
+        }
+
+        private static Timer ack(MeterRegistry registry, String topic, String outcome) {
+            return Timer.builder("courier.kafka.ack")
+                .description("Time from the send of a record to its acknowledgement by the broker")
+                .tags("topic", topic, "outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+        }
+
+        public StageTimer getSerialization() {
+            return serialization;
+        }
+
+        /**
+         * Get the timer of the acknowledgements.
+         *
+         * @param success whether the record was acknowledged, or failed.
+         * @return the timer.
+         */
+        public Timer getAck(boolean success) {
+            return success ? acknowledged : failed;
+        }
+
+        public Counter getRejected() {
+            return rejected;
+        }
+    }
+
+    private static final class DistanceMeters {
+
+        private final Counter calls;
+
+        private final DistributionSummary points;
+
+        private DistanceMeters(MeterRegistry registry, String computation) {
+            this.calls = Counter.builder("courier.distance.calls")
+                .description("Distance computations over a track")
+                .tag("computation", computation)
+                .register(registry);
+            this.points = DistributionSummary.builder("courier.distance.points")
+                .description("Pings read by a distance computation")
+                .baseUnit("pings")
+                .tag("computation", computation)
+                .sla(1, 10, 100, 1000, 10000, 100000, 1000000)
+                .register(registry);
+        }
+    }
+}
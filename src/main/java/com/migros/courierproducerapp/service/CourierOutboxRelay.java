@@ -0,0 +1,151 @@
+package com.migros.courierproducerapp.service;
+
+import com.migros.courierproducerapp.config.ApplicationProperties;
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.repository.CourierRepository;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Relay of the courier outbox: publishes the pings flagged as pending publish and clears their flag.
+ * <p>
+ * The flag is written with the ping itself, so a ping is never persisted without being published eventually,
+ * and the request thread does a single write. The relay polls the pending pings in id order, hands a whole
+ * batch to the idempotent producer at once and waits for its acknowledgements before clearing the flags
+ * with one update. Broker-side retries of the producer are deduplicated, a crash between the acknowledgement
+ * and the update republishes the batch on restart.
+ * <p>
+ * Once a ping of a courier failed, the later pings of that courier in the batch keep their flag even when
+ * acknowledged, so that they are republished after it and the last record of the courier stays its latest ping.
+ */
+@Service
+public class CourierOutboxRelay {
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(CourierOutboxRelay.class);
+
+    private final ApplicationProperties.Outbox properties;
+
+    private final CourierRepository courierRepository;
+
+    private final CourierKafkaService courierKafkaService;
+
+    private final CourierMetrics courierMetrics;
+
+    private volatile boolean running;
+
+    private Thread relay;
+
+    public CourierOutboxRelay(ApplicationProperties applicationProperties, CourierRepository courierRepository,
+                              CourierKafkaService courierKafkaService, CourierMetrics courierMetrics) {
+        this.properties = applicationProperties.getOutbox();
+        this.courierRepository = courierRepository;
+        this.courierKafkaService = courierKafkaService;
+        this.courierMetrics = courierMetrics;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        relay = new Thread(this::relay, "courier-outbox-relay");
+        relay.start();
+        courierKafkaService.addShutdownListener(this::stop);
+        log.info("Courier outbox relay started");
+    }
+
+    /**
+     * Stop the relay once its current batch is published, the pings left are published on the next start.
+     */
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            relay.join(properties.getSendTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void relay() {
+        long pollIntervalMillis = properties.getPollInterval().toMillis();
+        while (running) {
+            try {
+                int published = publishPending();
+                if (published < properties.getBatchSize()) {
+                    Thread.sleep(pollIntervalMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Could not relay the courier outbox, retrying: {}", e.getMessage());
+                sleep(RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Publish one batch of pending pings.
+     *
+     * @return the number of pings published.
+     * @throws InterruptedException if interrupted while waiting for the acknowledgements.
+     */
+    int publishPending() throws InterruptedException {
+        List<Courier> pending = courierRepository.findPendingPublish(properties.getBatchSize());
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        courierMetrics.batchSize(CourierMetrics.PATH_OUTBOX, pending.size());
+        List<CompletableFuture<RecordMetadata>> futures = new ArrayList<>(pending.size());
+        for (Courier courier : pending) {
+            futures.add(courierKafkaService.alertCourierStatus(courier));
+        }
+        long deadline = System.currentTimeMillis() + properties.getSendTimeout().toMillis();
+        List<String> published = new ArrayList<>(pending.size());
+        Set<String> failedCourierIDs = new HashSet<>();
+        for (int i = 0; i < pending.size(); i++) {
+            Courier courier = pending.get(i);
+            try {
+                futures.get(i).get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+                if (!failedCourierIDs.contains(courier.getCourierID())) {
+                    published.add(courier.getId());
+                }
+            } catch (ExecutionException | TimeoutException e) {
+                failedCourierIDs.add(courier.getCourierID());
+                log.debug("Courier {} not published, retrying: {}", courier.getId(), e.getMessage());
+            }
+        }
+        courierRepository.markPublished(published);
+        log.debug("Relayed {} of {} pending Couriers", published.size(), pending.size());
+        return published.size();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
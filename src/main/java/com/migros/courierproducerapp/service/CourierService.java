@@ -1,9 +1,15 @@
 package com.migros.courierproducerapp.service;
 
 import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.domain.CourierLocation;
+import com.migros.courierproducerapp.domain.CourierStats;
+import com.migros.courierproducerapp.service.dto.CourierBatchResultDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -20,6 +26,24 @@ public interface CourierService {
      */
     Courier save(Courier courier);
 
+    /**
+     * Save a batch of couriers with a single unordered bulk insert.
+     *
+     * @param couriers the entities to save.
+     * @return one result per entity, in the same order, with the index of the entity in {@code couriers}.
+     */
+    List<CourierBatchResultDTO> saveAll(List<Courier> couriers);
+
+    /**
+     * Save a batch of couriers whose ids were assigned by the caller, such as the write-behind journal, and which an
+     * earlier attempt may already have inserted. A courier rejected as a duplicate id is taken as inserted: it is
+     * reported as created and the stats, store entrances, cache and feed are updated for it again.
+     *
+     * @param couriers the entities to save, with their ids.
+     * @return one result per entity, in the same order, with the index of the entity in {@code couriers}.
+     */
+    List<CourierBatchResultDTO> saveAllIdempotent(List<Courier> couriers);
+
     /**
      * Get Total Travel Distance of a courier.
      *
@@ -28,6 +52,24 @@ public interface CourierService {
      */
     Double getTotalTravelDistance(String courierID);
 
+    /**
+     * Get the travel distance of a courier within a time range, streamed in a single pass over its track.
+     *
+     * @param courierID the courierID.
+     * @param from      the inclusive start of the range, or {@code null} for the first ping.
+     * @param to        the exclusive end of the range, or {@code null} for the last ping.
+     * @return double distance
+     */
+    Double getTravelDistance(String courierID, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Rebuild the running aggregate of a courier from its full history.
+     *
+     * @param courierID the courierID.
+     * @return the rebuilt aggregate.
+     */
+    CourierStats rebuildStats(String courierID);
+
     /**
      * Get all the couriers.
      *
@@ -36,6 +78,22 @@ public interface CourierService {
      */
     Page<Courier> findAll(Pageable pageable);
 
+    /**
+     * Get the couriers following an id, in id order, without counting them.
+     *
+     * @param afterId the id of the last courier of the previous slice, or {@code null} for the first slice.
+     * @param limit   the maximum number of couriers.
+     * @return the slice of entities.
+     */
+    Slice<Courier> findAllAfter(String afterId, int limit);
+
+    /**
+     * Get the estimated number of couriers, read from the collection metadata instead of counting them.
+     *
+     * @return the number of couriers.
+     */
+    long estimateCount();
+
     /**
      * Get the "id" courier.
      *
@@ -44,6 +102,24 @@ public interface CourierService {
      */
     Optional<Courier> findOne(String id);
 
+    /**
+     * Get the latest location of a courier, from memory.
+     *
+     * @param courierID the courierID.
+     * @return the location.
+     */
+    Optional<CourierLocation> findLatestLocation(String courierID);
+
+    /**
+     * Get the couriers whose latest location is within a radius of a point, nearest first.
+     *
+     * @param lat          the lat of the center.
+     * @param lng          the lng of the center.
+     * @param radiusMeters the radius in meters.
+     * @return the locations.
+     */
+    List<CourierLocation> findNear(double lat, double lng, double radiusMeters);
+
     /**
      * Delete the "id" courier.
      *
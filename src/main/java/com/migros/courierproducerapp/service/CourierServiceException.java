@@ -2,6 +2,10 @@ package com.migros.courierproducerapp.service;
 
 public class CourierServiceException extends RuntimeException {
 
+    public CourierServiceException(String message) {
+        super(message);
+    }
+
     public CourierServiceException(Throwable e) {
         super(e);
     }
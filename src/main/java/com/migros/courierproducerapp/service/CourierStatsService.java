@@ -0,0 +1,202 @@
+package com.migros.courierproducerapp.service;
+
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.domain.CourierLocation;
+import com.migros.courierproducerapp.domain.CourierStats;
+import com.migros.courierproducerapp.repository.CourierRepository;
+import com.migros.courierproducerapp.repository.CourierStatsRepository;
+import com.migros.courierproducerapp.util.GeoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the {@link CourierStats} running aggregate of every courier.
+ * <p>
+ * Pings later than the last one of the aggregate are folded in O(1), from the aggregate alone. Any other ping,
+ * a late one or one that a concurrent recomputation may already have read, recomputes the aggregate from the
+ * timestamp-ordered track: pings inserted but not folded yet are visible in Mongo, so only a recomputation,
+ * which sets the aggregate rather than adding to it, can include them without counting them twice. Concurrent
+ * updates of a courier are serialized with optimistic locking.
+ */
+@Service
+public class CourierStatsService {
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    private static final Comparator<Courier> BY_TIMESTAMP = Comparator.comparing(Courier::getTimestamp,
+        Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final Logger log = LoggerFactory.getLogger(CourierStatsService.class);
+
+    private final CourierRepository courierRepository;
+
+    private final CourierStatsRepository courierStatsRepository;
+
+    private final CourierMetrics courierMetrics;
+
+    public CourierStatsService(CourierRepository courierRepository, CourierStatsRepository courierStatsRepository,
+                               CourierMetrics courierMetrics) {
+        this.courierRepository = courierRepository;
+        this.courierStatsRepository = courierStatsRepository;
+        this.courierMetrics = courierMetrics;
+    }
+
+    /**
+     * Fold a persisted ping into the aggregate of its courier.
+     *
+     * @param courier the persisted ping.
+     */
+    public void onCourierSaved(Courier courier) {
+        update(courier.getCourierID(), Collections.singletonList(courier));
+    }
+
+    /**
+     * Fold persisted pings into the aggregates of their couriers, with one update per courier.
+     *
+     * @param couriers the persisted pings.
+     */
+    public void onCouriersSaved(Collection<Courier> couriers) {
+        Map<String, List<Courier>> byCourier = couriers.stream().collect(Collectors.groupingBy(Courier::getCourierID));
+        byCourier.forEach(this::update);
+    }
+
+    /**
+     * Drop the aggregate of a courier whose history was modified, it is rebuilt on the next read.
+     *
+     * @param courierID the courierID.
+     */
+    public void invalidate(String courierID) {
+        log.debug("Request to invalidate CourierStats : {}", courierID);
+        courierStatsRepository.deleteById(courierID);
+    }
+
+    /**
+     * Get the total travel distance of a courier, rebuilding its aggregate when missing.
+     *
+     * @param courierID the courierID.
+     * @return the distance in meters.
+     */
+    public double getTotalDistance(String courierID) {
+        return courierStatsRepository.findById(courierID)
+            .orElseGet(() -> rebuild(courierID))
+            .getTotalDistance();
+    }
+
+    /**
+     * Recompute the aggregate of a courier from its full history.
+     *
+     * @param courierID the courierID.
+     * @return the rebuilt aggregate.
+     */
+    public CourierStats rebuild(String courierID) {
+        log.debug("Request to rebuild CourierStats : {}", courierID);
+        for (int attempt = 1; ; attempt++) {
+            CourierStats stats = recompute(courierStatsRepository.findById(courierID).orElseGet(() -> new CourierStats(courierID)));
+            if (stats.getPingCount() == 0) {
+                return stats;
+            }
+            try {
+                return courierStatsRepository.save(stats);
+            } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void update(String courierID, List<Courier> pings) {
+        List<Courier> sorted = new ArrayList<>(pings);
+        sorted.sort(BY_TIMESTAMP);
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                Optional<CourierStats> stats = courierStatsRepository.findById(courierID);
+                if (stats.isPresent() && isAfter(sorted.get(0).getTimestamp(), stats.get().getLastTimestamp())) {
+                    courierStatsRepository.save(fold(stats.get(), sorted));
+                } else {
+                    courierStatsRepository.save(recompute(stats.orElseGet(() -> new CourierStats(courierID))));
+                }
+                return;
+            } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+                log.debug("Concurrent update of CourierStats {}, attempt {}", courierID, attempt);
+            }
+        }
+        log.warn("Could not update CourierStats {}, it will be rebuilt on the next read", courierID);
+        invalidate(courierID);
+    }
+
+    /**
+     * Appends pings strictly later than the last one of the aggregate, which therefore none of its pings can be.
+     */
+    private CourierStats fold(CourierStats stats, List<Courier> sorted) {
+        courierMetrics.distance(CourierMetrics.DISTANCE_FOLD, sorted.size());
+        for (Courier ping : sorted) {
+            append(stats, ping);
+        }
+        return stats;
+    }
+
+    private CourierStats recompute(CourierStats stats) {
+        stats.setTotalDistance(0);
+        stats.setPingCount(0);
+        stats.setLastLat(null);
+        stats.setLastLng(null);
+        stats.setLastTimestamp(null);
+        stats.setLocation(null);
+        try (CloseableIterator<CourierLocation> track = courierRepository.streamTrack(stats.getCourierID(), null, null)) {
+            double totalDistance = 0;
+            long pingCount = 0;
+            CourierLocation last = null;
+            while (track.hasNext()) {
+                CourierLocation ping = track.next();
+                if (last != null) {
+                    totalDistance += GeoUtils.haversine(last.getLat(), last.getLng(), ping.getLat(), ping.getLng());
+                }
+                pingCount++;
+                last = ping;
+            }
+            courierMetrics.distance(CourierMetrics.DISTANCE_REBUILD, pingCount);
+            stats.setTotalDistance(totalDistance);
+            stats.setPingCount(pingCount);
+            if (last != null) {
+                setLast(stats, last.getLat(), last.getLng(), last.getLocalDateTime());
+            }
+        }
+        return stats;
+    }
+
+    private void append(CourierStats stats, Courier ping) {
+        if (stats.getLastLat() != null) {
+            stats.setTotalDistance(stats.getTotalDistance()
+                + GeoUtils.haversine(stats.getLastLat(), stats.getLastLng(), ping.getLat(), ping.getLng()));
+        }
+        stats.setPingCount(stats.getPingCount() + 1);
+        setLast(stats, ping.getLat(), ping.getLng(), ping.getTimestamp());
+    }
+
+    private static void setLast(CourierStats stats, double lat, double lng, LocalDateTime timestamp) {
+        stats.setLastLat(lat);
+        stats.setLastLng(lng);
+        stats.setLastTimestamp(timestamp);
+        stats.setLocation(new GeoJsonPoint(lng, lat));
+    }
+
+    private static boolean isAfter(LocalDateTime timestamp, LocalDateTime last) {
+        return timestamp == null || last == null || timestamp.isAfter(last);
+    }
+}
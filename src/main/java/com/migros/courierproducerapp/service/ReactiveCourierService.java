@@ -0,0 +1,159 @@
+package com.migros.courierproducerapp.service;
+
+import com.migros.courierproducerapp.config.ApplicationProperties;
+import com.migros.courierproducerapp.config.ProfileConstants;
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.domain.CourierLocation;
+import com.migros.courierproducerapp.repository.reactive.ReactiveCourierRepository;
+import com.migros.courierproducerapp.service.dto.CourierBatchResultDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of {@link CourierService} for the ingest path of the reactive profile.
+ * <p>
+ * A ping holds no thread while Mongo inserts it. The in-memory latest location and the live feed are updated on
+ * the driver thread that completes the insert, as neither blocks. The store entrances and the Kafka records may
+ * wait for a free slot of the producer, or for its metadata, and the running aggregates use the blocking
+ * repository, so these run on the bounded elastic scheduler, off the driver threads and the response path. With
+ * the outbox enabled, pings are flagged for the relay in their insert instead of being published.
+ */
+@Service
+@Profile(ProfileConstants.SPRING_PROFILE_REACTIVE)
+public class ReactiveCourierService {
+
+    /**
+     * Maximum number of inserts in flight for one batch.
+     */
+    private static final int BATCH_CONCURRENCY = 64;
+
+    private final Logger log = LoggerFactory.getLogger(ReactiveCourierService.class);
+
+    private final ReactiveCourierRepository reactiveCourierRepository;
+
+    private final CourierStatsService courierStatsService;
+
+    private final CourierLocationCache courierLocationCache;
+
+    private final StoreEntranceDetector storeEntranceDetector;
+
+    private final CourierKafkaService courierKafkaService;
+
+    private final CourierFeedService courierFeedService;
+
+    private final boolean outboxEnabled;
+
+    public ReactiveCourierService(ReactiveCourierRepository reactiveCourierRepository, CourierStatsService courierStatsService,
+                                  CourierLocationCache courierLocationCache, StoreEntranceDetector storeEntranceDetector,
+                                  CourierKafkaService courierKafkaService, CourierFeedService courierFeedService,
+                                  ApplicationProperties applicationProperties) {
+        this.reactiveCourierRepository = reactiveCourierRepository;
+        this.courierStatsService = courierStatsService;
+        this.courierLocationCache = courierLocationCache;
+        this.storeEntranceDetector = storeEntranceDetector;
+        this.courierKafkaService = courierKafkaService;
+        this.courierFeedService = courierFeedService;
+        this.outboxEnabled = applicationProperties.getOutbox().isEnabled();
+    }
+
+    /**
+     * Insert a new ping and publish it.
+     *
+     * @param courier the entity to insert.
+     * @return the persisted entity.
+     */
+    public Mono<Courier> create(Courier courier) {
+        log.debug("Request to insert Courier : {}", courier);
+        markPendingPublish(courier);
+        return reactiveCourierRepository.insert(courier)
+            .doOnNext(created -> {
+                onCreated(created);
+                afterCreated(Collections.singletonList(created));
+            });
+    }
+
+    /**
+     * Insert a batch of new pings, each with its own insert so that a failing one does not prevent
+     * the others from being created, and publish the created ones.
+     *
+     * @param couriers the entities to insert.
+     * @return one result per entity, in the same order.
+     */
+    public Mono<List<CourierBatchResultDTO>> createAll(List<Courier> couriers) {
+        log.debug("Request to insert {} Couriers", couriers.size());
+        couriers.forEach(this::markPendingPublish);
+        List<Courier> created = Collections.synchronizedList(new ArrayList<>(couriers.size()));
+        return Flux.range(0, couriers.size())
+            .flatMapSequential(i -> reactiveCourierRepository.insert(couriers.get(i))
+                .map(courier -> {
+                    onCreated(courier);
+                    created.add(courier);
+                    return CourierBatchResultDTO.created(i, courier.getId());
+                })
+                .onErrorResume(e -> Mono.just(CourierBatchResultDTO.failed(i, couriers.get(i).getId(), e.getMessage()))),
+                BATCH_CONCURRENCY)
+            .collectList()
+            .doOnNext(results -> afterCreated(created));
+    }
+
+    /**
+     * Get one courier by id.
+     *
+     * @param id the id of the entity.
+     * @return the entity.
+     */
+    public Mono<Courier> findOne(String id) {
+        log.debug("Request to get Courier : {}", id);
+        return reactiveCourierRepository.findById(id);
+    }
+
+    private void onCreated(Courier courier) {
+        CourierLocation location = CourierLocation.of(courier);
+        courierLocationCache.update(location);
+        courierFeedService.onLocation(location);
+    }
+
+    /**
+     * Run the side effects of created pings that may block on the bounded elastic scheduler.
+     */
+    private void afterCreated(List<Courier> created) {
+        if (created.isEmpty()) {
+            return;
+        }
+        Mono.fromRunnable(() -> created.forEach(this::publish))
+            .subscribeOn(Schedulers.boundedElastic())
+            .subscribe(null, e -> log.warn("Could not publish {} pings: {}", created.size(), e.getMessage()));
+        foldStats(created);
+    }
+
+    private void publish(Courier courier) {
+        CourierLocation location = CourierLocation.of(courier);
+        storeEntranceDetector.onLocation(location);
+        if (outboxEnabled) {
+            return;
+        }
+        courierKafkaService.publishCourierLocation(location)
+            .subscribe(metadata -> { }, e -> log.debug("Courier status of {} not published: {}", location.getCourierID(), e.getMessage()));
+    }
+
+    private void markPendingPublish(Courier courier) {
+        if (outboxEnabled) {
+            courier.setPendingPublish(Boolean.TRUE);
+        }
+    }
+
+    private void foldStats(List<Courier> created) {
+        Mono.fromRunnable(() -> courierStatsService.onCouriersSaved(created))
+            .subscribeOn(Schedulers.boundedElastic())
+            .subscribe(null, e -> log.warn("Could not update CourierStats of {} pings: {}", created.size(), e.getMessage()));
+    }
+}
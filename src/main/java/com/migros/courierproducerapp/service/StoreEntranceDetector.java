@@ -0,0 +1,184 @@
+package com.migros.courierproducerapp.service;
+
+import com.migros.courierproducerapp.config.ApplicationProperties;
+import com.migros.courierproducerapp.domain.CourierLocation;
+import com.migros.courierproducerapp.domain.Store;
+import com.migros.courierproducerapp.repository.StoreRepository;
+import com.migros.courierproducerapp.service.dto.StoreEntranceDTO;
+import com.migros.courierproducerapp.util.GeoGridIndex;
+import com.migros.courierproducerapp.util.GeoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Detects the entrance of couriers into the circumference of a store and publishes it to Kafka.
+ * <p>
+ * Stores are loaded once into a {@link GeoGridIndex} whose cells are as large as the entrance radius, so a ping
+ * only looks up the few cells around it and almost always finds them empty. An entrance is the move of a courier
+ * from outside to inside the radius of a store: each (courier, store) pair seen inside is kept with an inside flag,
+ * set by the pings within the radius and cleared by the first one outside it, so a courier waiting at a store raises
+ * a single entrance. A pair is forgotten once none of its pings was seen for the debounce period, so leaving and
+ * re-entering within the period, as GPS noise around the radius does, is not counted again. The pairs are swept at
+ * most once per period, on the server clock rather than the device timestamps.
+ */
+@Service
+public class StoreEntranceDetector {
+
+    private final Logger log = LoggerFactory.getLogger(StoreEntranceDetector.class);
+
+    private final StoreRepository storeRepository;
+
+    private final CourierKafkaService courierKafkaService;
+
+    private final boolean enabled;
+
+    private final double radiusMeters;
+
+    private final long debounceMillis;
+
+    private final GeoGridIndex storeIndex;
+
+    private volatile Map<String, Store> stores = Collections.emptyMap();
+
+    /**
+     * Presence of the couriers near stores, by courierID then storeID. A map is only updated within the
+     * {@code compute} of its courier.
+     */
+    private final ConcurrentHashMap<String, Map<String, Presence>> presences = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastSweep = new AtomicLong(Long.MIN_VALUE);
+
+    public StoreEntranceDetector(StoreRepository storeRepository, CourierKafkaService courierKafkaService,
+                                 ApplicationProperties applicationProperties) {
+        this.storeRepository = storeRepository;
+        this.courierKafkaService = courierKafkaService;
+        this.enabled = applicationProperties.getStoreEntrance().isEnabled();
+        this.radiusMeters = applicationProperties.getStoreEntrance().getRadiusMeters();
+        this.debounceMillis = applicationProperties.getStoreEntrance().getDebounce().toMillis();
+        this.storeIndex = new GeoGridIndex(radiusMeters);
+    }
+
+    /**
+     * Load the stores, after the database migrations created them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadStores() {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Store> loaded = new HashMap<>();
+        for (Store store : storeRepository.findAll()) {
+            loaded.put(store.getId(), store);
+            storeIndex.put(store.getId(), store.getLat(), store.getLng());
+        }
+        stores = loaded;
+        if (loaded.isEmpty()) {
+            log.warn("Store entrance detection is enabled but there are no stores, no entrance will be detected");
+            return;
+        }
+        log.info("Store entrance detection enabled for {} stores within {}m", loaded.size(), radiusMeters);
+    }
+
+    /**
+     * Check a ping against every store and publish its entrances.
+     *
+     * @param location the location of the ping.
+     * @return the entrances raised by the ping.
+     */
+    public List<StoreEntranceDTO> onLocation(CourierLocation location) {
+        if (!enabled || stores.isEmpty() || location.getTimestamp() == Long.MIN_VALUE) {
+            return Collections.emptyList();
+        }
+        Map<String, Double> inside = new HashMap<>();
+        storeIndex.forEachCandidate(location.getLat(), location.getLng(), radiusMeters, storeID -> {
+            Store store = stores.get(storeID);
+            double distance = GeoUtils.haversine(location.getLat(), location.getLng(), store.getLat(), store.getLng());
+            if (distance <= radiusMeters) {
+                inside.put(storeID, distance);
+            }
+        });
+        if (inside.isEmpty() && !presences.containsKey(location.getCourierID())) {
+            return Collections.emptyList();
+        }
+        List<StoreEntranceDTO> entrances = new ArrayList<>(1);
+        long now = System.currentTimeMillis();
+        presences.compute(location.getCourierID(), (courierID, courierPresences) -> {
+            Map<String, Presence> updated = courierPresences == null ? new HashMap<>() : courierPresences;
+            for (Map.Entry<String, Presence> presence : updated.entrySet()) {
+                if (!inside.containsKey(presence.getKey()) && presence.getValue().inside) {
+                    presence.getValue().inside = false;
+                    presence.getValue().lastSeen = now;
+                }
+            }
+            inside.forEach((storeID, distance) -> {
+                Presence presence = updated.get(storeID);
+                if (presence == null || presence.lastSeen < now - debounceMillis) {
+                    presence = new Presence();
+                    updated.put(storeID, presence);
+                    entrances.add(new StoreEntranceDTO(location, stores.get(storeID), distance));
+                }
+                presence.inside = true;
+                presence.lastSeen = now;
+            });
+            return updated.isEmpty() ? null : updated;
+        });
+        sweep(now);
+        for (StoreEntranceDTO entrance : entrances) {
+            log.debug("Courier {} entered store {}", entrance.getCourierID(), entrance.getStoreName());
+            courierKafkaService.alertStoreEntrance(entrance);
+        }
+        return entrances;
+    }
+
+    /**
+     * Check a batch of pings, see {@link #onLocation(CourierLocation)}.
+     *
+     * @param locations the locations of the pings.
+     */
+    public void onLocations(List<CourierLocation> locations) {
+        for (CourierLocation location : locations) {
+            onLocation(location);
+        }
+    }
+
+    /**
+     * Forget the pairs not seen within the debounce period, at most once per period.
+     */
+    private void sweep(long now) {
+        long previous = lastSweep.get();
+        if (previous != Long.MIN_VALUE && now - previous < debounceMillis || !lastSweep.compareAndSet(previous, now)) {
+            return;
+        }
+        long horizon = now - debounceMillis;
+        for (String courierID : presences.keySet()) {
+            presences.computeIfPresent(courierID, (key, courierPresences) -> {
+                courierPresences.values().removeIf(presence -> presence.lastSeen < horizon);
+                return courierPresences.isEmpty() ? null : courierPresences;
+            });
+        }
+    }
+
+    /**
+     * Presence of a courier near a store.
+     */
+    private static final class Presence {
+
+        private boolean inside;
+
+        /**
+         * Server time of the last ping of the courier inside the store, or of its exit.
+         */
+        private long lastSeen;
+    }
+}
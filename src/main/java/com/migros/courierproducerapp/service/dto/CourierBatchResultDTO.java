@@ -0,0 +1,80 @@
+package com.migros.courierproducerapp.service.dto;
+
+/**
+ * Outcome of a single location ping within a batch request.
+ */
+public class CourierBatchResultDTO {
+
+    public enum Status {
+        CREATED, REJECTED, FAILED
+    }
+
+    private int index;
+    private String id;
+    private Status status;
+    private String error;
+
+    public CourierBatchResultDTO() {
+    }
+
+    public CourierBatchResultDTO(int index, String id, Status status, String error) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static CourierBatchResultDTO created(int index, String id) {
+        return new CourierBatchResultDTO(index, id, Status.CREATED, null);
+    }
+
+    public static CourierBatchResultDTO rejected(int index, String error) {
+        return new CourierBatchResultDTO(index, null, Status.REJECTED, error);
+    }
+
+    public static CourierBatchResultDTO failed(int index, String id, String error) {
+        return new CourierBatchResultDTO(index, id, Status.FAILED, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "CourierBatchResultDTO{" +
+                "index=" + index +
+                ", id='" + id + '\'' +
+                ", status=" + status +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
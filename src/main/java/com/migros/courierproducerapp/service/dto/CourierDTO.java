@@ -6,7 +6,7 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
 import com.migros.courierproducerapp.domain.Courier;
-import java.time.Instant;
+import com.migros.courierproducerapp.domain.CourierLocation;
 import java.time.LocalDateTime;
 
 public class CourierDTO {
@@ -18,6 +18,9 @@ public class CourierDTO {
     @JsonSerialize(using = LocalDateTimeSerializer.class)
     private LocalDateTime timestamp;
 
+    public CourierDTO() {
+    }
+
     public CourierDTO(Courier courier){
         this.courierID = courier.getCourierID();
         this.lat = courier.getLat();
@@ -25,6 +28,13 @@ public class CourierDTO {
         this.timestamp = courier.getTimestamp();
     }
 
+    public CourierDTO(CourierLocation location) {
+        this.courierID = location.getCourierID();
+        this.lat = location.getLat();
+        this.lng = location.getLng();
+        this.timestamp = location.getLocalDateTime();
+    }
+
     public String getCourierID() {
         return courierID;
     }
@@ -56,4 +66,14 @@ public class CourierDTO {
     public void setTimestamp(LocalDateTime timestamp) {
         this.timestamp = timestamp;
     }
+
+    @Override
+    public String toString() {
+        return "CourierDTO{" +
+                "courierID='" + courierID + '\'' +
+                ", lat=" + lat +
+                ", lng=" + lng +
+                ", timestamp=" + timestamp +
+                '}';
+    }
 }
@@ -0,0 +1,108 @@
+package com.migros.courierproducerapp.service.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import com.migros.courierproducerapp.domain.CourierLocation;
+import com.migros.courierproducerapp.domain.Store;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrance of a courier into the circumference of a store.
+ */
+public class StoreEntranceDTO {
+
+    private String courierID;
+    private String storeID;
+    private String storeName;
+    private Double lat;
+    private Double lng;
+    private Double distance;
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    @JsonSerialize(using = LocalDateTimeSerializer.class)
+    private LocalDateTime timestamp;
+
+    public StoreEntranceDTO() {
+    }
+
+    public StoreEntranceDTO(CourierLocation location, Store store, double distance) {
+        this.courierID = location.getCourierID();
+        this.storeID = store.getId();
+        this.storeName = store.getName();
+        this.lat = location.getLat();
+        this.lng = location.getLng();
+        this.distance = distance;
+        this.timestamp = location.getLocalDateTime();
+    }
+
+    public String getCourierID() {
+        return courierID;
+    }
+
+    public void setCourierID(String courierID) {
+        this.courierID = courierID;
+    }
+
+    public String getStoreID() {
+        return storeID;
+    }
+
+    public void setStoreID(String storeID) {
+        this.storeID = storeID;
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public void setStoreName(String storeName) {
+        this.storeName = storeName;
+    }
+
+    public Double getLat() {
+        return lat;
+    }
+
+    public void setLat(Double lat) {
+        this.lat = lat;
+    }
+
+    public Double getLng() {
+        return lng;
+    }
+
+    public void setLng(Double lng) {
+        this.lng = lng;
+    }
+
+    public Double getDistance() {
+        return distance;
+    }
+
+    public void setDistance(Double distance) {
+        this.distance = distance;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "StoreEntranceDTO{" +
+                "courierID='" + courierID + '\'' +
+                ", storeID='" + storeID + '\'' +
+                ", storeName='" + storeName + '\'' +
+                ", lat=" + lat +
+                ", lng=" + lng +
+                ", distance=" + distance +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
@@ -1,17 +1,46 @@
 package com.migros.courierproducerapp.service.impl;
 
+import com.migros.courierproducerapp.config.ApplicationProperties;
 import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.domain.CourierLocation;
+import com.migros.courierproducerapp.domain.CourierStats;
 import com.migros.courierproducerapp.repository.CourierRepository;
+import com.migros.courierproducerapp.service.CourierFeedService;
+import com.migros.courierproducerapp.service.CourierLocationCache;
+import com.migros.courierproducerapp.service.CourierMetrics;
 import com.migros.courierproducerapp.service.CourierService;
+import com.migros.courierproducerapp.service.CourierStatsService;
+import com.migros.courierproducerapp.service.StoreEntranceDetector;
+import com.migros.courierproducerapp.service.dto.CourierBatchResultDTO;
+import com.migros.courierproducerapp.util.GeoUtils;
+import com.migros.courierproducerapp.util.RequestTiming;
+import com.mongodb.BulkWriteError;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Service Implementation for managing {@link Courier}.
@@ -20,18 +49,51 @@ import java.util.Optional;
 @Transactional
 public class CourierServiceImpl implements CourierService {
 
+    /**
+     * Mongo error code of a unique index violation.
+     */
+    private static final int DUPLICATE_KEY = 11000;
 
     private final Logger log = LoggerFactory.getLogger(CourierServiceImpl.class);
 
     private  final CourierRepository courierRepository;
 
-    public CourierServiceImpl(CourierRepository courierRepository) {
+    private final MongoTemplate mongoTemplate;
+
+    private final CourierStatsService courierStatsService;
+
+    private final CourierLocationCache courierLocationCache;
+
+    private final StoreEntranceDetector storeEntranceDetector;
+
+    private final CourierFeedService courierFeedService;
+
+    private final CourierMetrics courierMetrics;
+
+    private final boolean outboxEnabled;
+
+    public CourierServiceImpl(CourierRepository courierRepository, MongoTemplate mongoTemplate, CourierStatsService courierStatsService,
+                              CourierLocationCache courierLocationCache, StoreEntranceDetector storeEntranceDetector,
+                              CourierFeedService courierFeedService, CourierMetrics courierMetrics,
+                              ApplicationProperties applicationProperties) {
         this.courierRepository = courierRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.courierStatsService = courierStatsService;
+        this.courierLocationCache = courierLocationCache;
+        this.storeEntranceDetector = storeEntranceDetector;
+        this.courierFeedService = courierFeedService;
+        this.courierMetrics = courierMetrics;
+        this.outboxEnabled = applicationProperties.getOutbox().isEnabled();
     }
 
 
     /**
      * Save a courier.
+     * <p>
+     * A new ping is folded into the running aggregate of its courier, an update of an existing ping
+     * invalidates the aggregates it belongs to. Both update the latest location of the courier and
+     * its live feed, and a new ping is checked for store entrances. With the outbox enabled, the ping is flagged
+     * for the relay in the same write.
      *
      * @param courier the entity to save.
      * @return the persisted entity.
@@ -39,7 +101,105 @@ public class CourierServiceImpl implements CourierService {
     @Override
     public Courier save(Courier courier) {
         log.debug("Request to save Courier : {}", courier);
-        return courierRepository.save(courier);
+        markPendingPublish(courier);
+        if (courier.getId() == null) {
+            Courier result = courierMetrics.mongoWrite(CourierMetrics.OPERATION_INSERT).record(() -> courierRepository.save(courier));
+            long stats = System.nanoTime();
+            courierStatsService.onCourierSaved(result);
+            RequestTiming.record(RequestTiming.STATS, System.nanoTime() - stats);
+            CourierLocation location = CourierLocation.of(result);
+            courierLocationCache.update(location);
+            storeEntranceDetector.onLocation(location);
+            courierFeedService.onLocation(location);
+            return result;
+        }
+        courierRepository.findById(courier.getId())
+            .ifPresent(previous -> courierStatsService.invalidate(previous.getCourierID()));
+        Courier result = courierMetrics.mongoWrite(CourierMetrics.OPERATION_UPDATE).record(() -> courierRepository.save(courier));
+        courierStatsService.invalidate(result.getCourierID());
+        CourierLocation location = CourierLocation.of(result);
+        courierLocationCache.update(location);
+        courierFeedService.onLocation(location);
+        return result;
+    }
+
+    /**
+     * Save a batch of couriers with a single unordered bulk insert.
+     * <p>
+     * Identifiers are assigned up front so that every result can report the id of its entity,
+     * and a failing document does not prevent the remaining ones from being inserted. With the
+     * outbox enabled, the pings are flagged for the relay.
+     *
+     * @param couriers the entities to save.
+     * @return one result per entity, in the same order.
+     */
+    @Override
+    public List<CourierBatchResultDTO> saveAll(List<Courier> couriers) {
+        return saveAll(couriers, false);
+    }
+
+    /**
+     * Save a batch of couriers which may already have been inserted, see {@link #saveAll(List)}.
+     * <p>
+     * Duplicate ids are taken as inserted by an earlier attempt. Updating the stats again is safe: a ping which is
+     * not later than the last one of its courier recomputes the aggregate rather than being added to it.
+     *
+     * @param couriers the entities to save, with their ids.
+     * @return one result per entity, in the same order.
+     */
+    @Override
+    public List<CourierBatchResultDTO> saveAllIdempotent(List<Courier> couriers) {
+        return saveAll(couriers, true);
+    }
+
+    private List<CourierBatchResultDTO> saveAll(List<Courier> couriers, boolean duplicatesInserted) {
+        log.debug("Request to save {} Couriers", couriers.size());
+        List<CourierBatchResultDTO> results = new ArrayList<>(couriers.size());
+        if (couriers.isEmpty()) {
+            return results;
+        }
+        for (Courier courier : couriers) {
+            if (courier.getId() == null) {
+                courier.setId(ObjectId.get().toHexString());
+            }
+            markPendingPublish(courier);
+        }
+        Map<Integer, String> errors = new HashMap<>();
+        List<Courier> created = new ArrayList<>(couriers.size());
+        List<CourierLocation> locations = new ArrayList<>(couriers.size());
+        long start = System.nanoTime();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Courier.class)
+                .insert(couriers)
+                .execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (!duplicatesInserted || error.getCode() != DUPLICATE_KEY) {
+                    errors.put(error.getIndex(), error.getMessage());
+                }
+            }
+        } finally {
+            courierMetrics.mongoWrite(CourierMetrics.OPERATION_BULK_INSERT).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        for (int i = 0; i < couriers.size(); i++) {
+            String id = couriers.get(i).getId();
+            String error = errors.get(i);
+            if (error == null) {
+                created.add(couriers.get(i));
+                CourierLocation location = CourierLocation.of(couriers.get(i));
+                courierLocationCache.update(location);
+                locations.add(location);
+                results.add(CourierBatchResultDTO.created(i, id));
+            } else {
+                results.add(CourierBatchResultDTO.failed(i, id, error));
+            }
+        }
+        long stats = System.nanoTime();
+        courierStatsService.onCouriersSaved(created);
+        RequestTiming.record(RequestTiming.STATS, System.nanoTime() - stats);
+        storeEntranceDetector.onLocations(locations);
+        courierFeedService.onLocations(locations);
+        return results;
     }
 
 
@@ -56,6 +216,42 @@ public class CourierServiceImpl implements CourierService {
         return courierRepository.findById(id);
     }
 
+    /**
+     * Get the latest location of a courier, from memory.
+     *
+     * @param courierID the courierID.
+     * @return the location.
+     */
+    @Override
+    public Optional<CourierLocation> findLatestLocation(String courierID) {
+        return courierLocationCache.get(courierID);
+    }
+
+    /**
+     * Get the couriers whose latest location is within a radius of a point, nearest first.
+     * <p>
+     * Answered by the in-memory spatial index, or by the {@code 2dsphere} index of the courier stats
+     * while the cache warms up or when the radius covers too many index cells.
+     *
+     * @param lat          the lat of the center.
+     * @param lng          the lng of the center.
+     * @param radiusMeters the radius in meters.
+     * @return the locations.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<CourierLocation> findNear(double lat, double lng, double radiusMeters) {
+        log.debug("Request to get Couriers within {}m of {},{}", radiusMeters, lat, lng);
+        if (courierLocationCache.canFindNear(lat, radiusMeters)) {
+            return courierLocationCache.findNear(lat, lng, radiusMeters);
+        }
+        Query query = Query.query(Criteria.where("location").nearSphere(new GeoJsonPoint(lng, lat)).maxDistance(radiusMeters));
+        return mongoTemplate.find(query, CourierStats.class).stream()
+            .map(stats -> new CourierLocation(stats.getCourierID(), stats.getLastLat(), stats.getLastLng(),
+                CourierLocation.toEpochMillis(stats.getLastTimestamp())))
+            .collect(Collectors.toList());
+    }
+
     /**
      * Delete the courier by id.
      *
@@ -64,31 +260,69 @@ public class CourierServiceImpl implements CourierService {
     @Override
     public void delete(String id) {
         log.debug("Request to delete Courier : {}", id);
+        Optional<Courier> courier = courierRepository.findById(id);
         courierRepository.deleteById(id);
+        courier.ifPresent(deleted -> {
+            courierStatsService.invalidate(deleted.getCourierID());
+            courierLocationCache.refresh(deleted.getCourierID());
+        });
     }
 
     /**
-     * Get Total Travel Distance of a courier.
+     * Get Total Travel Distance of a courier, read from its running aggregate.
      *
      * @param courierID the entity to get total travel distance.
      * @return double distance.
      */
     @Override
     public Double getTotalTravelDistance(String courierID) {
-        List<Courier>  couries = courierRepository.findAllByCourierID(courierID);
-        Double total = 0.0;
-        Courier temp = new Courier();
-        for(Courier courier : couries) {
-            if(temp.getCourierID() == null) {
-                temp = courier;
-            } else {
-                total += distFrom(temp.getLat(), temp.getLng(), courier.getLat(), courier.getLng());
+        log.debug("Request to get total travel distance of Courier : {}", courierID);
+        return courierStatsService.getTotalDistance(courierID);
+    }
+
+    /**
+     * Get the travel distance of a courier within a time range.
+     * <p>
+     * The track is read in timestamp order from a cursor, so memory stays constant whatever its length.
+     *
+     * @param courierID the courierID.
+     * @param from      the inclusive start of the range, or {@code null} for the first ping.
+     * @param to        the exclusive end of the range, or {@code null} for the last ping.
+     * @return double distance.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Double getTravelDistance(String courierID, LocalDateTime from, LocalDateTime to) {
+        log.debug("Request to get travel distance of Courier : {} from {} to {}", courierID, from, to);
+        double total = 0;
+        long points = 0;
+        try (CloseableIterator<CourierLocation> track = courierRepository.streamTrack(courierID, from, to)) {
+            CourierLocation previous = null;
+            while (track.hasNext()) {
+                CourierLocation current = track.next();
+                if (previous != null) {
+                    total += GeoUtils.haversine(previous.getLat(), previous.getLng(), current.getLat(), current.getLng());
+                }
+                previous = current;
+                points++;
             }
-            temp = courier;
         }
+        courierMetrics.distance(CourierMetrics.DISTANCE_RANGE, points);
         return total;
     }
 
+    /**
+     * Rebuild the running aggregate of a courier from its full history.
+     *
+     * @param courierID the courierID.
+     * @return the rebuilt aggregate.
+     */
+    @Override
+    public CourierStats rebuildStats(String courierID) {
+        log.debug("Request to rebuild stats of Courier : {}", courierID);
+        return courierStatsService.rebuild(courierID);
+    }
+
     /**
      * Get all the couriers.
      *
@@ -103,23 +337,34 @@ public class CourierServiceImpl implements CourierService {
     }
 
     /**
-     * Calculate distance function and return true if it is less than 100
+     * Get the couriers following an id, one more is read to know whether a next slice exists.
      *
-     * @param lat1 lat of store
-     * @param lng1 lng of store
-     * @param lat2 lat of courier
-     * @param lng2 lng of courier
+     * @param afterId the id of the last courier of the previous slice, or {@code null} for the first slice.
+     * @param limit   the maximum number of couriers.
+     * @return the slice of entities.
      */
-    private double distFrom(double lat1, double lng1, double lat2, double lng2) {
-        double earthRadius = 6371000; //meters
-        double dLat = Math.toRadians(lat2-lat1);
-        double dLng = Math.toRadians(lng2-lng1);
-        double a = Math.sin(dLat/2) * Math.sin(dLat/2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(dLng/2) * Math.sin(dLng/2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
-        double dist = (earthRadius * c);
-        return dist;
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Courier> findAllAfter(String afterId, int limit) {
+        log.debug("Request to get {} Couriers after {}", limit, afterId);
+        List<Courier> couriers = courierRepository.findAfter(afterId, limit + 1);
+        boolean hasNext = couriers.size() > limit;
+        return new SliceImpl<>(hasNext ? couriers.subList(0, limit) : couriers, PageRequest.of(0, limit), hasNext);
     }
 
+    /**
+     * Get the estimated number of couriers.
+     *
+     * @return the number of couriers.
+     */
+    @Override
+    public long estimateCount() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Courier.class)).estimatedDocumentCount();
+    }
+
+    private void markPendingPublish(Courier courier) {
+        if (outboxEnabled) {
+            courier.setPendingPublish(Boolean.TRUE);
+        }
+    }
 }
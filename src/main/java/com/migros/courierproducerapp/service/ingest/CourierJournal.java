@@ -0,0 +1,249 @@
+package com.migros.courierproducerapp.service.ingest;
+
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.domain.CourierLocation;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Append-only file journal of the pings accepted by the write-behind queue, so that they survive a crash
+ * of the process before being written to Mongo.
+ * <p>
+ * The journal is a sequence of segment files, a new one is started once the active one exceeds its size limit.
+ * A segment is deleted as soon as every ping it holds was released, that is written to Mongo. On startup,
+ * the pings of the remaining segments are recovered in order. Appends go to the page cache and survive a
+ * crash of the process, {@link #sync()} forces them to the disk.
+ * <p>
+ * Record layout, big-endian: length of the rest of the record (4), id (12), lat (8), lng (8), timestamp as
+ * UTC epoch millis (8), length of the courierID (2), courierID in UTF-8. A truncated record at the end of a
+ * segment, left by a crash in the middle of a write, is ignored.
+ */
+public class CourierJournal implements Closeable {
+
+    private static final String SUFFIX = ".journal";
+
+    private static final int FIXED_LENGTH = 12 + 8 + 8 + 8 + 2;
+
+    private final Logger log = LoggerFactory.getLogger(CourierJournal.class);
+
+    private final Path directory;
+
+    private final long segmentBytes;
+
+    /**
+     * Number of pings not released yet, by segment.
+     */
+    private final Map<Long, Integer> pending = new HashMap<>();
+
+    private long activeSegment;
+
+    private FileChannel active;
+
+    public CourierJournal(Path directory, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * A ping read from or appended to the journal, with its segment.
+     */
+    public static final class Entry {
+
+        private final long segment;
+
+        private final Courier courier;
+
+        Entry(long segment, Courier courier) {
+            this.segment = segment;
+            this.courier = courier;
+        }
+
+        public long getSegment() {
+            return segment;
+        }
+
+        public Courier getCourier() {
+            return courier;
+        }
+    }
+
+    /**
+     * Read the pings left by a previous run and open a new active segment after them.
+     *
+     * @return the pings, in the order they were appended.
+     * @throws IOException if the journal cannot be read.
+     */
+    public synchronized List<Entry> recover() throws IOException {
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring unexpected journal file {}", file);
+                }
+            }
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            int count = read(segment.getKey(), segment.getValue(), entries);
+            if (count == 0) {
+                Files.delete(segment.getValue());
+            } else {
+                pending.put(segment.getKey(), count);
+            }
+        }
+        activeSegment = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        open();
+        if (!entries.isEmpty()) {
+            log.info("Recovered {} pings from the journal in {}", entries.size(), directory);
+        }
+        return entries;
+    }
+
+    /**
+     * Append a ping, which must have its id.
+     *
+     * @param courier the ping.
+     * @return the entry of the ping.
+     * @throws IOException if the ping cannot be written.
+     */
+    public synchronized Entry append(Courier courier) throws IOException {
+        if (active.size() >= segmentBytes) {
+            active.close();
+            if (!pending.containsKey(activeSegment)) {
+                delete(activeSegment);
+            }
+            activeSegment++;
+            open();
+        }
+        ByteBuffer record = encode(courier);
+        while (record.hasRemaining()) {
+            active.write(record);
+        }
+        pending.merge(activeSegment, 1, Integer::sum);
+        return new Entry(activeSegment, courier);
+    }
+
+    /**
+     * Release pings written to Mongo, deleting the segments left without pending pings.
+     *
+     * @param entries the written pings.
+     */
+    public synchronized void release(List<Entry> entries) {
+        Map<Long, Integer> released = new HashMap<>();
+        for (Entry entry : entries) {
+            released.merge(entry.getSegment(), 1, Integer::sum);
+        }
+        released.forEach((segment, count) -> {
+            Integer left = pending.merge(segment, -count, Integer::sum);
+            if (left != null && left <= 0) {
+                pending.remove(segment);
+                if (segment != activeSegment) {
+                    delete(segment);
+                }
+            }
+        });
+    }
+
+    /**
+     * Force the appended pings to the disk.
+     *
+     * @throws IOException if the journal cannot be synced.
+     */
+    public synchronized void sync() throws IOException {
+        active.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        active.close();
+        if (!pending.containsKey(activeSegment)) {
+            delete(activeSegment);
+        }
+    }
+
+    private void open() throws IOException {
+        active = FileChannel.open(segment(activeSegment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+    }
+
+    private void delete(long segment) {
+        try {
+            Files.deleteIfExists(segment(segment));
+        } catch (IOException e) {
+            log.warn("Could not delete journal segment {}: {}", segment, e.getMessage());
+        }
+    }
+
+    private Path segment(long segment) {
+        return directory.resolve(String.format("%020d%s", segment, SUFFIX));
+    }
+
+    private static ByteBuffer encode(Courier courier) {
+        byte[] courierID = courier.getCourierID().getBytes(StandardCharsets.UTF_8);
+        if (courierID.length > 0xFFFF) {
+            throw new IllegalArgumentException("courierID is longer than " + 0xFFFF + " bytes");
+        }
+        ByteBuffer record = ByteBuffer.allocate(4 + FIXED_LENGTH + courierID.length);
+        record.putInt(FIXED_LENGTH + courierID.length);
+        record.put(new ObjectId(courier.getId()).toByteArray());
+        record.putDouble(courier.getLat());
+        record.putDouble(courier.getLng());
+        record.putLong(CourierLocation.toEpochMillis(courier.getTimestamp()));
+        record.putShort((short) courierID.length);
+        record.put(courierID);
+        record.flip();
+        return record;
+    }
+
+    private int read(long segment, Path file, List<Entry> entries) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        int count = 0;
+        try {
+            while (data.remaining() >= 4) {
+                int length = data.getInt();
+                if (length < FIXED_LENGTH || length > data.remaining()) {
+                    break;
+                }
+                byte[] id = new byte[12];
+                data.get(id);
+                Courier courier = new Courier();
+                courier.setId(new ObjectId(id).toHexString());
+                courier.setLat(data.getDouble());
+                courier.setLng(data.getDouble());
+                courier.setTimestamp(CourierLocation.toLocalDateTime(data.getLong()));
+                byte[] courierID = new byte[data.getShort() & 0xFFFF];
+                data.get(courierID);
+                courier.setCourierID(new String(courierID, StandardCharsets.UTF_8));
+                entries.add(new Entry(segment, courier));
+                count++;
+            }
+        } catch (BufferUnderflowException e) {
+            log.warn("Ignoring a corrupted record at the end of journal segment {}", file);
+        }
+        if (data.hasRemaining()) {
+            log.warn("Ignoring {} bytes of a truncated record at the end of journal segment {}", data.remaining(), file);
+        }
+        return count;
+    }
+}
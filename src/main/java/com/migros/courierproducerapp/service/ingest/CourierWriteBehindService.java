@@ -0,0 +1,268 @@
+package com.migros.courierproducerapp.service.ingest;
+
+import com.migros.courierproducerapp.config.ApplicationProperties;
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.service.CourierKafkaService;
+import com.migros.courierproducerapp.service.CourierMetrics;
+import com.migros.courierproducerapp.service.CourierService;
+import com.migros.courierproducerapp.service.dto.CourierBatchResultDTO;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind ingest of new pings: a ping is journaled and queued, and the caller is answered at once.
+ * <p>
+ * Each worker owns a bounded queue and drains it into Mongo bulk inserts and Kafka bursts, through
+ * {@link CourierService#saveAllIdempotent(List)} and {@link CourierKafkaService#alertCourierStatuses(List)}, or
+ * the outbox relay when it is enabled. Pings are routed to a worker by courierID, so the pings of a courier are
+ * written in the order they were accepted. A failing batch is retried until it is written, the pings stay in the
+ * journal meanwhile and are recovered on restart.
+ * <p>
+ * Ids are assigned on acceptance, so a ping found as a duplicate id on a retry, or on recovery after a crash, was
+ * inserted by an earlier attempt: it is taken as inserted, its stats and side effects are applied again and it is
+ * published, at least once. On shutdown, before the Kafka producer is closed, new pings are written
+ * synchronously again and the queues are drained.
+ * <p>
+ * The caller was answered before the write, so a ping Mongo refuses for any other reason is not dropped: it is
+ * logged, counted by {@link CourierMetrics#writeBehindFailed(int)} and appended to the dead-letter journal, in
+ * the {@value #DEAD_LETTER_DIRECTORY} subdirectory of the journal, before being released. Its segments use the
+ * journal format and are never deleted; moved back into the journal directory, they are written on the next start.
+ */
+@Service
+public class CourierWriteBehindService {
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30000;
+
+    static final String DEAD_LETTER_DIRECTORY = "dead-letter";
+
+    private final Logger log = LoggerFactory.getLogger(CourierWriteBehindService.class);
+
+    private final ApplicationProperties.WriteBehind properties;
+
+    private final boolean outboxEnabled;
+
+    private final CourierService courierService;
+
+    private final CourierKafkaService courierKafkaService;
+
+    private final CourierMetrics courierMetrics;
+
+    private CourierJournal journal;
+
+    private CourierJournal deadLetters;
+
+    private List<BlockingQueue<CourierJournal.Entry>> queues;
+
+    private List<Thread> workers;
+
+    private volatile boolean running;
+
+    public CourierWriteBehindService(ApplicationProperties applicationProperties, CourierService courierService,
+                                     CourierKafkaService courierKafkaService, CourierMetrics courierMetrics) {
+        this.properties = applicationProperties.getIngest().getWriteBehind();
+        this.outboxEnabled = applicationProperties.getOutbox().isEnabled();
+        this.courierService = courierService;
+        this.courierKafkaService = courierKafkaService;
+        this.courierMetrics = courierMetrics;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Path journalDirectory = Paths.get(properties.getJournalDirectory());
+        journal = new CourierJournal(journalDirectory, properties.getJournalSegmentBytes());
+        List<CourierJournal.Entry> recovered = journal.recover();
+        deadLetters = new CourierJournal(journalDirectory.resolve(DEAD_LETTER_DIRECTORY), properties.getJournalSegmentBytes());
+        int deadLettered = deadLetters.recover().size();
+        if (deadLettered > 0) {
+            log.warn("{} pings that could not be written are waiting in {}", deadLettered,
+                journalDirectory.resolve(DEAD_LETTER_DIRECTORY));
+        }
+        int capacity = Math.max(properties.getCapacity() / properties.getWorkers(), 1);
+        queues = new ArrayList<>(properties.getWorkers());
+        workers = new ArrayList<>(properties.getWorkers());
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            queues.add(new ArrayBlockingQueue<>(capacity + recovered.size()));
+        }
+        for (CourierJournal.Entry entry : recovered) {
+            queueOf(entry.getCourier()).add(entry);
+        }
+        running = true;
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            BlockingQueue<CourierJournal.Entry> queue = queues.get(i);
+            Thread worker = new Thread(() -> drain(queue), "courier-write-behind-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+        courierKafkaService.addShutdownListener(this::shutdown);
+        log.info("Write-behind ingest started with {} workers, journal in {}", workers.size(), properties.getJournalDirectory());
+    }
+
+    /**
+     * Accept a new ping to be written in the background, assigning its id.
+     *
+     * @param courier the ping.
+     * @return whether the ping was accepted, if not it must be written synchronously.
+     */
+    public boolean accept(Courier courier) {
+        if (!running) {
+            return false;
+        }
+        courier.setId(ObjectId.get().toHexString());
+        BlockingQueue<CourierJournal.Entry> queue = queueOf(courier);
+        synchronized (queue) {
+            if (queue.remainingCapacity() == 0) {
+                courier.setId(null);
+                return false;
+            }
+            try {
+                queue.add(journal.append(courier));
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Could not journal courier {}, writing it synchronously: {}", courier.getCourierID(), e.getMessage());
+                courier.setId(null);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stop accepting pings and write the queued ones, at most for {@value #SHUTDOWN_TIMEOUT_MILLIS} ms.
+     * The pings left are recovered from the journal on the next start.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        log.info("Flushing the write-behind queues");
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS;
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(deadline - System.currentTimeMillis(), 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        try {
+            journal.sync();
+            journal.close();
+            deadLetters.close();
+        } catch (IOException e) {
+            log.warn("Could not close the journal: {}", e.getMessage());
+        }
+    }
+
+    private BlockingQueue<CourierJournal.Entry> queueOf(Courier courier) {
+        return queues.get(Math.floorMod(courier.getCourierID().hashCode(), queues.size()));
+    }
+
+    private void drain(BlockingQueue<CourierJournal.Entry> queue) {
+        List<CourierJournal.Entry> batch = new ArrayList<>(properties.getBatchSize());
+        long syncIntervalMillis = properties.getJournalSyncInterval().toMillis();
+        long lastSync = System.currentTimeMillis();
+        while (running || !queue.isEmpty()) {
+            try {
+                CourierJournal.Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (System.currentTimeMillis() - lastSync >= syncIntervalMillis) {
+                    journal.sync();
+                    lastSync = System.currentTimeMillis();
+                }
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.getBatchSize() - 1);
+                write(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.warn("Could not sync the journal: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void write(List<CourierJournal.Entry> batch) throws InterruptedException {
+        List<Courier> couriers = new ArrayList<>(batch.size());
+        for (CourierJournal.Entry entry : batch) {
+            couriers.add(entry.getCourier());
+        }
+        courierMetrics.batchSize(CourierMetrics.PATH_WRITE_BEHIND, couriers.size());
+        while (true) {
+            try {
+                List<Courier> created = new ArrayList<>(couriers.size());
+                List<CourierJournal.Entry> failed = new ArrayList<>();
+                for (CourierBatchResultDTO result : courierService.saveAllIdempotent(couriers)) {
+                    if (result.getStatus() == CourierBatchResultDTO.Status.CREATED) {
+                        created.add(couriers.get(result.getIndex()));
+                    } else {
+                        log.warn("Courier {} accepted by the write-behind ingest could not be written: {}", result.getId(),
+                            result.getError());
+                        failed.add(batch.get(result.getIndex()));
+                    }
+                }
+                if (!outboxEnabled) {
+                    courierKafkaService.alertCourierStatuses(created);
+                }
+                release(batch, failed);
+                return;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    log.warn("Could not write {} pings on shutdown, they stay in the journal: {}", batch.size(), e.getMessage());
+                    return;
+                }
+                log.warn("Could not write {} pings, retrying: {}", batch.size(), e.getMessage());
+                Thread.sleep(RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Release a written batch, once its failed pings are in the dead-letter journal. Failed pings which
+     * cannot be dead-lettered stay in the journal, to be written again on the next start.
+     */
+    private void release(List<CourierJournal.Entry> batch, List<CourierJournal.Entry> failed) {
+        if (failed.isEmpty()) {
+            journal.release(batch);
+            return;
+        }
+        courierMetrics.writeBehindFailed(failed.size());
+        try {
+            for (CourierJournal.Entry entry : failed) {
+                deadLetters.append(entry.getCourier());
+            }
+            deadLetters.sync();
+            journal.release(batch);
+        } catch (IOException e) {
+            log.error("Could not dead-letter {} pings, they stay in the journal: {}", failed.size(), e.getMessage());
+            List<CourierJournal.Entry> written = new ArrayList<>(batch);
+            written.removeAll(failed);
+            journal.release(written);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Durable write-behind ingest of courier pings.
+ */
+package com.migros.courierproducerapp.service.ingest;
@@ -0,0 +1,53 @@
+package com.migros.courierproducerapp.service.kafka;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.utils.Utils;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Partitioner assigning keys with jump consistent hashing.
+ * <p>
+ * Like the default partitioner every courierID always lands on the same partition, so its pings stay ordered,
+ * but when partitions are added only {@code 1/n} of the couriers move instead of nearly all of them,
+ * which keeps consumer state local while scaling out.
+ */
+public class ConsistentHashPartitioner implements Partitioner {
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int numPartitions = cluster.partitionCountForTopic(topic);
+        if (keyBytes == null) {
+            return ThreadLocalRandom.current().nextInt(numPartitions);
+        }
+        return jumpConsistentHash(Utils.murmur2(keyBytes), numPartitions);
+    }
+
+    /**
+     * Lamping and Veach, "A Fast, Minimal Memory, Consistent Hash Algorithm".
+     *
+     * @param key     the hash of the key.
+     * @param buckets the number of buckets.
+     * @return the bucket of the key, in {@code [0, buckets)}.
+     */
+    static int jumpConsistentHash(long key, int buckets) {
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,126 @@
+package com.migros.courierproducerapp.service.kafka;
+
+import com.migros.courierproducerapp.domain.CourierLocation;
+import com.migros.courierproducerapp.service.dto.CourierDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+
+/**
+ * Compact fixed-layout binary encoding of a {@link CourierDTO}, about 30 bytes instead of 100+ for JSON.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ * offset  size  field
+ * 0       1     version, {@value #VERSION}
+ * 1       4     lat, degrees * 10^7 as int (about 1cm resolution)
+ * 5       4     lng, degrees * 10^7 as int
+ * 9       8     timestamp, epoch millis of the UTC wall clock, {@link Long#MIN_VALUE} when absent
+ * 17      2     length n of the courierID, unsigned
+ * 19      n     courierID, UTF-8
+ * </pre>
+ * Coordinates of consecutive pings differ in their low-order bytes only, which compresses well in a producer batch.
+ * Encoding fails with an {@link IllegalArgumentException} for a NaN coordinate, a lat outside +/-90 or a lng outside +/-180.
+ */
+public final class CourierBinaryCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final double SCALE = 1e7;
+
+    private static final int HEADER_LENGTH = 19;
+
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final int MAX_ID_LENGTH = 0xFFFF;
+
+    private CourierBinaryCodec() {
+    }
+
+    public static byte[] encode(CourierDTO courier) {
+        return encode(courier.getCourierID(), courier.getLat(), courier.getLng(), courier.getTimestamp() == null
+            ? NO_TIMESTAMP : courier.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+    }
+
+    /**
+     * Encode a location straight from its primitive fields, both carry the timestamp as UTC epoch millis.
+     *
+     * @param location the location.
+     * @return the record.
+     */
+    public static byte[] encode(CourierLocation location) {
+        return encode(location.getCourierID(), location.getLat(), location.getLng(), location.getTimestamp());
+    }
+
+    private static byte[] encode(String id, double lat, double lng, long timestamp) {
+        byte[] courierID = id.getBytes(StandardCharsets.UTF_8);
+        if (courierID.length > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("courierID is longer than " + MAX_ID_LENGTH + " bytes");
+        }
+        byte[] data = new byte[HEADER_LENGTH + courierID.length];
+        data[0] = VERSION;
+        writeInt(data, 1, toFixed("lat", lat, 90));
+        writeInt(data, 5, toFixed("lng", lng, 180));
+        writeLong(data, 9, timestamp);
+        data[17] = (byte) (courierID.length >>> 8);
+        data[18] = (byte) courierID.length;
+        System.arraycopy(courierID, 0, data, HEADER_LENGTH, courierID.length);
+        return data;
+    }
+
+    public static CourierDTO decode(byte[] data) {
+        return new CourierDTO(decodeLocation(data));
+    }
+
+    /**
+     * Decode a record into a location, without the boxed fields of a {@link CourierDTO}.
+     *
+     * @param data the record.
+     * @return the location.
+     */
+    public static CourierLocation decodeLocation(byte[] data) {
+        if (data.length < HEADER_LENGTH) {
+            throw new IllegalArgumentException("Truncated courier record of " + data.length + " bytes");
+        }
+        if (data[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported courier record version " + data[0]);
+        }
+        int idLength = ((data[17] & 0xFF) << 8) | (data[18] & 0xFF);
+        if (data.length != HEADER_LENGTH + idLength) {
+            throw new IllegalArgumentException("Courier record of " + data.length + " bytes does not match its courierID length");
+        }
+        return new CourierLocation(new String(data, HEADER_LENGTH, idLength, StandardCharsets.UTF_8),
+            readInt(data, 1) / SCALE, readInt(data, 5) / SCALE, readLong(data, 9));
+    }
+
+    private static int toFixed(String field, double degrees, int max) {
+        // Checked before scaling, the cast would otherwise wrap larger values around silently
+        if (!(degrees >= -max && degrees <= max)) {
+            throw new IllegalArgumentException(field + " " + degrees + " is not within -" + max + " and " + max);
+        }
+        return (int) Math.round(degrees * SCALE);
+    }
+
+    private static void writeInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+
+    private static void writeLong(byte[] data, int offset, long value) {
+        writeInt(data, offset, (int) (value >>> 32));
+        writeInt(data, offset + 4, (int) value);
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24)
+            | ((data[offset + 1] & 0xFF) << 16)
+            | ((data[offset + 2] & 0xFF) << 8)
+            | (data[offset + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] data, int offset) {
+        return ((long) readInt(data, offset) << 32) | (readInt(data, offset + 4) & 0xFFFFFFFFL);
+    }
+}
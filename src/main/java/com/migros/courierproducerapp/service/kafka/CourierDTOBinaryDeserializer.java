@@ -0,0 +1,24 @@
+package com.migros.courierproducerapp.service.kafka;
+
+import com.migros.courierproducerapp.service.dto.CourierDTO;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Kafka {@link Deserializer} reading a {@link CourierDTO} written by {@link CourierDTOBinarySerializer},
+ * for consumers of a courier topic using the binary format.
+ */
+public class CourierDTOBinaryDeserializer implements Deserializer<CourierDTO> {
+
+    @Override
+    public CourierDTO deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return CourierBinaryCodec.decode(data);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("Could not deserialize courier from " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.migros.courierproducerapp.service.kafka;
+
+import com.migros.courierproducerapp.service.dto.CourierDTO;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka {@link Serializer} writing a {@link CourierDTO} in the {@link CourierBinaryCodec} format.
+ */
+public class CourierDTOBinarySerializer implements Serializer<CourierDTO> {
+
+    @Override
+    public byte[] serialize(String topic, CourierDTO data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return CourierBinaryCodec.encode(data);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("Could not serialize courier " + data.getCourierID(), e);
+        }
+    }
+}
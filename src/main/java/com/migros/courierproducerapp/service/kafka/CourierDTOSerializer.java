@@ -0,0 +1,36 @@
+package com.migros.courierproducerapp.service.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.migros.courierproducerapp.service.dto.CourierDTO;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka {@link Serializer} writing a {@link CourierDTO} as JSON.
+ * <p>
+ * The {@link ObjectWriter} is configured once and shared, it is immutable and thread-safe. Records are written
+ * straight to bytes through Jackson's recycled per-thread buffers, without an intermediate {@code String}.
+ */
+public class CourierDTOSerializer implements Serializer<CourierDTO> {
+
+    private static final ObjectWriter WRITER = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .writerFor(CourierDTO.class);
+
+    @Override
+    public byte[] serialize(String topic, CourierDTO data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return WRITER.writeValueAsBytes(data);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Could not serialize courier " + data.getCourierID(), e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.migros.courierproducerapp.service.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.migros.courierproducerapp.service.dto.StoreEntranceDTO;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka {@link Serializer} writing a {@link StoreEntranceDTO} as JSON.
+ */
+public class StoreEntranceDTOSerializer implements Serializer<StoreEntranceDTO> {
+
+    private static final ObjectWriter WRITER = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .writerFor(StoreEntranceDTO.class);
+
+    @Override
+    public byte[] serialize(String topic, StoreEntranceDTO data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return WRITER.writeValueAsBytes(data);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Could not serialize store entrance of " + data.getCourierID(), e);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Kafka producer extensions for courier records.
+ */
+package com.migros.courierproducerapp.service.kafka;
@@ -0,0 +1,125 @@
+package com.migros.courierproducerapp.util;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe spatial index bucketing identifiers into a grid of fixed-size lat/lng cells.
+ * <p>
+ * A radius query visits only the cells overlapping the bounding box of the circle, so its cost depends on the
+ * density around the point and not on the total number of entries. Candidates are not filtered by distance,
+ * the caller checks the exact distance of each.
+ */
+public class GeoGridIndex {
+
+    private static final double METERS_PER_DEGREE = 111320;
+
+    private final double cellDegrees;
+
+    private final ConcurrentHashMap<Long, Set<String>> cells = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Long> cellOf = new ConcurrentHashMap<>();
+
+    /**
+     * @param cellSizeMeters the height of a cell, its width is the same number of degrees of longitude.
+     */
+    public GeoGridIndex(double cellSizeMeters) {
+        this.cellDegrees = cellSizeMeters / METERS_PER_DEGREE;
+    }
+
+    /**
+     * Insert or move an identifier.
+     *
+     * @param id  the identifier.
+     * @param lat the lat of its position.
+     * @param lng the lng of its position.
+     */
+    public void put(String id, double lat, double lng) {
+        long cell = cellId(cellIndex(lat + 90), Math.floorMod(cellIndex(lng + 180), cellIndex(360)));
+        cellOf.compute(id, (key, previous) -> {
+            if (previous != null && previous != cell) {
+                removeFromCell(previous, id);
+            }
+            cells.compute(cell, (c, ids) -> {
+                Set<String> members = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                members.add(id);
+                return members;
+            });
+            return cell;
+        });
+    }
+
+    /**
+     * Remove an identifier.
+     *
+     * @param id the identifier.
+     */
+    public void remove(String id) {
+        cellOf.computeIfPresent(id, (key, previous) -> {
+            removeFromCell(previous, id);
+            return null;
+        });
+    }
+
+    /**
+     * Number of cells a radius query around the given point visits.
+     *
+     * @param lat          the lat of the center.
+     * @param radiusMeters the radius.
+     * @return the number of cells.
+     */
+    public long cellsToVisit(double lat, double radiusMeters) {
+        int[] bounds = bounds(lat, 0, radiusMeters);
+        return (long) (bounds[1] - bounds[0] + 1) * (bounds[3] - bounds[2] + 1);
+    }
+
+    /**
+     * Visit the identifiers of every cell overlapping the bounding box of a circle.
+     *
+     * @param lat          the lat of the center.
+     * @param lng          the lng of the center.
+     * @param radiusMeters the radius.
+     * @param consumer     receives the candidates, each one once.
+     */
+    public void forEachCandidate(double lat, double lng, double radiusMeters, Consumer<String> consumer) {
+        int[] bounds = bounds(lat, lng, radiusMeters);
+        int columns = cellIndex(360);
+        for (int row = bounds[0]; row <= bounds[1]; row++) {
+            for (int column = bounds[2]; column <= bounds[3]; column++) {
+                Set<String> ids = cells.get(cellId(row, Math.floorMod(column, columns)));
+                if (ids != null) {
+                    ids.forEach(consumer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rows and columns of the cells overlapping the bounding box of a circle, columns may wrap around the antimeridian.
+     */
+    private int[] bounds(double lat, double lng, double radiusMeters) {
+        double dLat = radiusMeters / METERS_PER_DEGREE;
+        double dLng = dLat / Math.max(Math.cos(Math.toRadians(lat)), 0.01);
+        int minRow = Math.max(cellIndex(lat + 90 - dLat), 0);
+        int maxRow = Math.min(cellIndex(lat + 90 + dLat), cellIndex(180));
+        int minColumn = cellIndex(lng + 180 - dLng);
+        int maxColumn = Math.min(cellIndex(lng + 180 + dLng), minColumn + cellIndex(360) - 1);
+        return new int[] {minRow, maxRow, minColumn, maxColumn};
+    }
+
+    private void removeFromCell(long cell, String id) {
+        cells.computeIfPresent(cell, (key, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private int cellIndex(double degrees) {
+        return (int) Math.floor(degrees / cellDegrees);
+    }
+
+    private static long cellId(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,205 @@
+package com.migros.courierproducerapp.util;
+
+/**
+ * Distance computations between geographic coordinates.
+ * <p>
+ * {@link #haversine(double, double, double, double)} is the exact great-circle distance on a spherical earth and
+ * the reference of the other methods. {@link #equirectangular(double, double, double, double)} projects a short hop
+ * on a plane scaled by the cosine of its latitude, which costs a single {@code cos} and {@code sqrt}, and
+ * {@link #distance(double, double, double, double)} picks it whenever its error is known to be negligible.
+ * <p>
+ * The batch methods work on primitive {@code lat}/{@code lng} arrays of a track, in a single pass without boxing,
+ * and compute the cosine of each point once instead of once per hop.
+ */
+public final class GeoUtils {
+
+    /**
+     * Mean radius of the earth, in meters.
+     */
+    public static final double EARTH_RADIUS = 6371000;
+
+    /**
+     * Largest latitude and longitude difference, in degrees, of a hop measured with the approximation
+     * by {@link #distance(double, double, double, double)}, about 11 km.
+     */
+    public static final double APPROXIMATION_MAX_DEGREES = 0.1;
+
+    /**
+     * Largest absolute latitude, in degrees, of a hop measured with the approximation by
+     * {@link #distance(double, double, double, double)}.
+     */
+    public static final double APPROXIMATION_MAX_LATITUDE = 80;
+
+    /**
+     * Bound of the relative error of the approximation against {@link #haversine(double, double, double, double)}
+     * within {@link #APPROXIMATION_MAX_DEGREES} and {@link #APPROXIMATION_MAX_LATITUDE}, that is less than
+     * a centimeter for the longest hop.
+     */
+    public static final double APPROXIMATION_MAX_RELATIVE_ERROR = 1e-6;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Great-circle distance between two points with the haversine formula.
+     *
+     * @param lat1 lat of the first point
+     * @param lng1 lng of the first point
+     * @param lat2 lat of the second point
+     * @param lng2 lng of the second point
+     * @return the distance in meters.
+     */
+    public static double haversine(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS * c;
+    }
+
+    /**
+     * Distance between two points with the equirectangular approximation, accurate for short hops only.
+     *
+     * @param lat1 lat of the first point
+     * @param lng1 lng of the first point
+     * @param lat2 lat of the second point
+     * @param lng2 lng of the second point
+     * @return the distance in meters.
+     */
+    public static double equirectangular(double lat1, double lng1, double lat2, double lng2) {
+        double cosLat = (Math.cos(Math.toRadians(lat1)) + Math.cos(Math.toRadians(lat2))) / 2;
+        return planar(lat2 - lat1, lng2 - lng1, cosLat);
+    }
+
+    /**
+     * Distance between two points, approximated when the hop is short enough for the relative error to stay
+     * below {@link #APPROXIMATION_MAX_RELATIVE_ERROR}, exact otherwise.
+     *
+     * @param lat1 lat of the first point
+     * @param lng1 lng of the first point
+     * @param lat2 lat of the second point
+     * @param lng2 lng of the second point
+     * @return the distance in meters.
+     */
+    public static double distance(double lat1, double lng1, double lat2, double lng2) {
+        if (isApproximable(lat1, lat2, lng2 - lng1)) {
+            return equirectangular(lat1, lng1, lat2, lng2);
+        }
+        return haversine(lat1, lng1, lat2, lng2);
+    }
+
+    /**
+     * Exact distance of every hop of a track.
+     *
+     * @param lat    lats of the points
+     * @param lng    lngs of the points
+     * @param length number of points
+     * @param hops   receives the distance from point {@code i} to point {@code i + 1} at index {@code i},
+     *               must hold {@code length - 1} values
+     */
+    public static void haversine(double[] lat, double[] lng, int length, double[] hops) {
+        checkTrack(lat, lng, length, hops);
+        double previousCos = length > 0 ? Math.cos(Math.toRadians(lat[0])) : 0;
+        for (int i = 1; i < length; i++) {
+            double cos = Math.cos(Math.toRadians(lat[i]));
+            double sinLat = Math.sin(Math.toRadians(lat[i] - lat[i - 1]) / 2);
+            double sinLng = Math.sin(Math.toRadians(lng[i] - lng[i - 1]) / 2);
+            double a = sinLat * sinLat + previousCos * cos * sinLng * sinLng;
+            hops[i - 1] = EARTH_RADIUS * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+            previousCos = cos;
+        }
+    }
+
+    /**
+     * Distance of every hop of a track, approximated under the same conditions as
+     * {@link #distance(double, double, double, double)}.
+     *
+     * @param lat    lats of the points
+     * @param lng    lngs of the points
+     * @param length number of points
+     * @param hops   receives the distance from point {@code i} to point {@code i + 1} at index {@code i},
+     *               must hold {@code length - 1} values
+     */
+    public static void distance(double[] lat, double[] lng, int length, double[] hops) {
+        checkTrack(lat, lng, length, hops);
+        double previousCos = length > 0 ? Math.cos(Math.toRadians(lat[0])) : 0;
+        for (int i = 1; i < length; i++) {
+            double cos = Math.cos(Math.toRadians(lat[i]));
+            hops[i - 1] = isApproximable(lat[i - 1], lat[i], lng[i] - lng[i - 1])
+                ? planar(lat[i] - lat[i - 1], lng[i] - lng[i - 1], (previousCos + cos) / 2)
+                : haversine(lat[i - 1], lng[i - 1], lat[i], lng[i]);
+            previousCos = cos;
+        }
+    }
+
+    /**
+     * Exact length of a track.
+     *
+     * @param lat    lats of the points
+     * @param lng    lngs of the points
+     * @param length number of points
+     * @return the sum of the distances of its hops, in meters.
+     */
+    public static double haversineLength(double[] lat, double[] lng, int length) {
+        double[] hops = new double[Math.max(length - 1, 0)];
+        haversine(lat, lng, length, hops);
+        return sum(hops);
+    }
+
+    /**
+     * Length of a track, each hop approximated under the same conditions as
+     * {@link #distance(double, double, double, double)}.
+     *
+     * @param lat    lats of the points
+     * @param lng    lngs of the points
+     * @param length number of points
+     * @return the sum of the distances of its hops, in meters.
+     */
+    public static double length(double[] lat, double[] lng, int length) {
+        double[] hops = new double[Math.max(length - 1, 0)];
+        distance(lat, lng, length, hops);
+        return sum(hops);
+    }
+
+    private static boolean isApproximable(double lat1, double lat2, double dLng) {
+        return Math.abs(lat2 - lat1) <= APPROXIMATION_MAX_DEGREES
+            && Math.abs(normalizeLongitude(dLng)) <= APPROXIMATION_MAX_DEGREES
+            && Math.abs(lat1) <= APPROXIMATION_MAX_LATITUDE
+            && Math.abs(lat2) <= APPROXIMATION_MAX_LATITUDE;
+    }
+
+    private static double planar(double dLat, double dLng, double cosLat) {
+        double x = Math.toRadians(normalizeLongitude(dLng)) * cosLat;
+        double y = Math.toRadians(dLat);
+        return EARTH_RADIUS * Math.sqrt(x * x + y * y);
+    }
+
+    /**
+     * Longitude difference in {@code [-180, 180]}, the short way around the antimeridian.
+     */
+    private static double normalizeLongitude(double dLng) {
+        if (dLng > 180) {
+            return dLng - 360;
+        }
+        if (dLng < -180) {
+            return dLng + 360;
+        }
+        return dLng;
+    }
+
+    private static double sum(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static void checkTrack(double[] lat, double[] lng, int length, double[] hops) {
+        if (length < 0 || lat.length < length || lng.length < length || hops.length < length - 1) {
+            throw new IllegalArgumentException("Track arrays are shorter than " + length + " points");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.migros.courierproducerapp.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded pool of canonical strings, so that the many copies of a short-lived identifier parsed from requests
+ * collapse into the single instance kept by long-lived structures.
+ * <p>
+ * Once full, strings that are not pooled yet are returned as is: the pool never grows past its capacity
+ * and never evicts, which keeps lookups lock-free.
+ */
+public class InternPool {
+
+    private final ConcurrentHashMap<String, String> pool;
+
+    private final int capacity;
+
+    public InternPool(int capacity) {
+        this.capacity = capacity;
+        this.pool = new ConcurrentHashMap<>(Math.min(capacity, 16384));
+    }
+
+    /**
+     * Get the canonical instance of a string.
+     *
+     * @param value the string, may be {@code null}.
+     * @return the pooled instance equal to the string, or the string itself.
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = pool.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (pool.size() >= capacity) {
+            return value;
+        }
+        pooled = pool.putIfAbsent(value, value);
+        return pooled == null ? value : pooled;
+    }
+
+    public int size() {
+        return pool.size();
+    }
+}
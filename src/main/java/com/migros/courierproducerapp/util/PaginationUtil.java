@@ -1,7 +1,10 @@
 package com.migros.courierproducerapp.util;
 
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
+import java.util.Base64;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -30,6 +33,55 @@ public final class PaginationUtil {
     return headers;
   }
 
+  /**
+   * Generate the headers of a keyset paginated slice: a {@code next} link carrying the cursor of the
+   * following slice, and a {@code first} link, without counting the elements.
+   *
+   * @param uriBuilder the builder of the current request URI.
+   * @param slice      the slice.
+   * @param nextCursor the cursor of the following slice, see {@link #encodeCursor(String)}.
+   * @return the headers.
+   */
+  public static <T> HttpHeaders generateKeysetPaginationHttpHeaders(UriComponentsBuilder uriBuilder, Slice<T> slice,
+      String nextCursor) {
+    HttpHeaders headers = new HttpHeaders();
+    StringBuilder link = new StringBuilder();
+    if (slice.hasNext()) {
+      link.append(prepareKeysetLink(uriBuilder, nextCursor, slice.getSize(), "next")).append(",");
+    }
+    link.append(prepareKeysetLink(uriBuilder, null, slice.getSize(), "first"));
+    headers.add("Link", link.toString());
+    return headers;
+  }
+
+  /**
+   * Encode the key of the last element of a slice into an opaque cursor.
+   *
+   * @param key the key.
+   * @return the URL-safe cursor.
+   */
+  public static String encodeCursor(String key) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decode a cursor produced by {@link #encodeCursor(String)}.
+   *
+   * @param cursor the cursor.
+   * @return the key.
+   * @throws IllegalArgumentException if the cursor is malformed.
+   */
+  public static String decodeCursor(String cursor) {
+    return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+  }
+
+  private static String prepareKeysetLink(UriComponentsBuilder uriBuilder, String cursor, int limit, String relType) {
+    String uri = uriBuilder.replaceQueryParam("after", cursor == null ? new Object[0] : new Object[] { cursor })
+        .replaceQueryParam("limit", new Object[] { Integer.toString(limit) }).toUriString().replace(",", "%2C")
+        .replace(";", "%3B");
+    return MessageFormat.format("<{0}>; rel=\"{1}\"", uri, relType);
+  }
+
   private static String prepareLink(UriComponentsBuilder uriBuilder, int pageNumber, int pageSize, String relType) {
     return MessageFormat.format("<{0}>; rel=\"{1}\"", preparePageUri(uriBuilder, pageNumber, pageSize), relType);
   }
@@ -0,0 +1,166 @@
+package com.migros.courierproducerapp.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of the internal stages of the request handled by the current thread.
+ * <p>
+ * A timing is bound to the thread by the web filter for the duration of a request. Stages recorded several times,
+ * such as the validation of each ping of a batch, are summed. Recording is a no-op on threads without a timing,
+ * so services record their stages whether they run for a request or in the background.
+ */
+public final class RequestTiming {
+
+    public static final String VALIDATION = "validation";
+
+    public static final String MONGO = "mongo";
+
+    public static final String STATS = "stats";
+
+    public static final String KAFKA_SERIALIZE = "kafka-serialize";
+
+    public static final String KAFKA_SEND = "kafka-send";
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private String[] stages = new String[8];
+
+    private long[] nanos = new long[8];
+
+    private int[] counts = new int[8];
+
+    private int size;
+
+    /**
+     * Bind a new timing to the current thread.
+     *
+     * @return the timing.
+     */
+    public static RequestTiming start() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * Unbind the timing of the current thread.
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Add a duration to a stage of the request handled by the current thread, if any.
+     *
+     * @param stage the stage.
+     * @param nanos the duration in nanoseconds.
+     */
+    public static void record(String stage, long nanos) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.add(stage, nanos);
+        }
+    }
+
+    /**
+     * Add a duration to a stage.
+     *
+     * @param stage the stage.
+     * @param duration the duration in nanoseconds.
+     */
+    public void add(String stage, long duration) {
+        for (int i = 0; i < size; i++) {
+            if (stages[i].equals(stage)) {
+                nanos[i] += duration;
+                counts[i]++;
+                return;
+            }
+        }
+        if (size == stages.length) {
+            stages = Arrays.copyOf(stages, size * 2);
+            nanos = Arrays.copyOf(nanos, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        stages[size] = stage;
+        nanos[size] = duration;
+        counts[size] = 1;
+        size++;
+    }
+
+    /**
+     * Get the recorded stages, in the order they were first recorded.
+     *
+     * @return the stages.
+     */
+    public List<Stage> getStages() {
+        List<Stage> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new Stage(stages[i], nanos[i], counts[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Format the stages as the value of a {@code Server-Timing} header, in milliseconds.
+     *
+     * @param totalName  the name of the total duration.
+     * @param totalNanos the total duration in nanoseconds.
+     * @return the header value.
+     */
+    public String toServerTiming(String totalName, long totalNanos) {
+        StringBuilder header = new StringBuilder(32 * (size + 1));
+        for (int i = 0; i < size; i++) {
+            appendMetric(header, stages[i], nanos[i]);
+            header.append(", ");
+        }
+        appendMetric(header, totalName, totalNanos);
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long nanos) {
+        header.append(name).append(";dur=").append(toMillis(nanos));
+    }
+
+    /**
+     * Convert nanoseconds to milliseconds with microsecond precision.
+     *
+     * @param nanos the duration in nanoseconds.
+     * @return the duration in milliseconds.
+     */
+    public static double toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0;
+    }
+
+    /**
+     * Total duration and number of recordings of a stage.
+     */
+    public static final class Stage {
+
+        private final String name;
+
+        private final long nanos;
+
+        private final int count;
+
+        private Stage(String name, long nanos, int count) {
+            this.name = name;
+            this.nanos = nanos;
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.migros.courierproducerapp.web.filter;
+
+import com.migros.courierproducerapp.management.SlowRequestLog;
+import com.migros.courierproducerapp.util.RequestTiming;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Times the internal stages of a request, see {@link RequestTiming}.
+ * <p>
+ * The stages are sent in a {@code Server-Timing} header, added right before the body is written, with the
+ * time spent so far as {@code app}. Requests slower than the threshold are added to the {@link SlowRequestLog},
+ * with the writing of the body as the {@code response} stage. Asynchronous requests, such as exports and live
+ * feeds, only get the header.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    private final long slowThresholdNanos;
+
+    private final SlowRequestLog slowRequestLog;
+
+    public ServerTimingFilter(Duration slowThreshold, SlowRequestLog slowRequestLog) {
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.slowRequestLog = slowRequestLog;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        long start = System.nanoTime();
+        RequestTiming timing = RequestTiming.start();
+        TimingResponse timingResponse = new TimingResponse(response, timing, start);
+        try {
+            filterChain.doFilter(request, timingResponse);
+        } finally {
+            RequestTiming.clear();
+            timingResponse.addServerTiming();
+            long duration = System.nanoTime() - start;
+            if (duration >= slowThresholdNanos && !request.isAsyncStarted()) {
+                timing.add("response", System.nanoTime() - timingResponse.bodyStart);
+                String uri = request.getQueryString() == null ? request.getRequestURI()
+                    : request.getRequestURI() + "?" + request.getQueryString();
+                slowRequestLog.add(new SlowRequestLog.SlowRequest(Instant.now(), request.getMethod(), uri,
+                    response.getStatus(), duration, timing));
+            }
+        }
+    }
+
+    /**
+     * Adds the {@code Server-Timing} header before anything is written.
+     */
+    private static final class TimingResponse extends HttpServletResponseWrapper {
+
+        private final RequestTiming timing;
+
+        private final long start;
+
+        private long bodyStart;
+
+        private TimingResponse(HttpServletResponse response, RequestTiming timing, long start) {
+            super(response);
+            this.timing = timing;
+            this.start = start;
+        }
+
+        private void addServerTiming() {
+            if (bodyStart == 0) {
+                bodyStart = System.nanoTime();
+                if (!isCommitted()) {
+                    setHeader(SERVER_TIMING, timing.toServerTiming("app", bodyStart - start));
+                }
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addServerTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addServerTiming();
+            super.sendError(sc);
+        }
+    }
+}
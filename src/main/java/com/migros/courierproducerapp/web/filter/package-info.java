@@ -0,0 +1,4 @@
+/**
+ * Servlet filters.
+ */
+package com.migros.courierproducerapp.web.filter;
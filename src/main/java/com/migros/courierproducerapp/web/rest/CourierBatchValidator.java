@@ -0,0 +1,154 @@
+package com.migros.courierproducerapp.web.rest;
+
+import com.migros.courierproducerapp.config.ApplicationProperties;
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.service.CourierMetrics;
+import com.migros.courierproducerapp.service.dto.CourierBatchResultDTO;
+import com.migros.courierproducerapp.web.rest.errors.BadRequestAlertException;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Validation of the batches of couriers, shared by the blocking and the reactive batch endpoints.
+ */
+@Component
+public class CourierBatchValidator {
+
+    private static final String ENTITY_NAME = "courierCourier";
+
+    private final ApplicationProperties applicationProperties;
+
+    private final Validator validator;
+
+    private final CourierMetrics courierMetrics;
+
+    public CourierBatchValidator(ApplicationProperties applicationProperties, Validator validator, CourierMetrics courierMetrics) {
+        this.applicationProperties = applicationProperties;
+        this.validator = validator;
+        this.courierMetrics = courierMetrics;
+    }
+
+    /**
+     * Check the size of a batch.
+     *
+     * @param size the number of couriers of the batch.
+     * @throws BadRequestAlertException if the batch is larger than {@code application.ingest.batch-max-size}.
+     */
+    public void checkBatchSize(int size) {
+        if (size > applicationProperties.getIngest().getBatchMaxSize()) {
+            throw new BadRequestAlertException("A batch cannot contain more than "
+                + applicationProperties.getIngest().getBatchMaxSize() + " couriers", ENTITY_NAME, "batchtoolarge");
+        }
+    }
+
+    /**
+     * Validate the couriers of a batch, stamping the accepted ones without a timestamp with the server time.
+     *
+     * @param couriers the couriers of the batch.
+     * @return the batch, see {@link #validate(List, Map)}.
+     */
+    public Batch validate(List<Courier> couriers) {
+        return validate(couriers, Collections.emptyMap());
+    }
+
+    /**
+     * Validate the couriers of a batch, stamping the accepted ones without a timestamp with the server time.
+     *
+     * @param couriers   the couriers of the batch.
+     * @param rejections the reasons of the couriers already rejected, by index, such as malformed lines.
+     * @return the batch, holding the accepted couriers to save and the results of the rejected ones.
+     */
+    public Batch validate(List<Courier> couriers, Map<Integer, String> rejections) {
+        LocalDateTime now = LocalDateTime.now();
+        Batch batch = new Batch(couriers.size());
+        for (int i = 0; i < couriers.size(); i++) {
+            Courier courier = couriers.get(i);
+            String rejection = rejections.containsKey(i) ? rejections.get(i) : validate(courier);
+            if (rejection != null) {
+                batch.results[i] = CourierBatchResultDTO.rejected(i, rejection);
+                continue;
+            }
+            if (courier.getTimestamp() == null) {
+                courier.setTimestamp(now);
+            }
+            batch.positions[batch.accepted.size()] = i;
+            batch.accepted.add(courier);
+        }
+        return batch;
+    }
+
+    private String validate(Courier courier) {
+        long start = System.nanoTime();
+        try {
+            return check(courier);
+        } finally {
+            courierMetrics.validation(CourierMetrics.PATH_BATCH).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String check(Courier courier) {
+        if (courier == null) {
+            return "Empty courier";
+        }
+        if (courier.getId() != null) {
+            return "A new courier cannot already have an ID";
+        }
+        Set<ConstraintViolation<Courier>> violations = validator.validate(courier);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .collect(Collectors.joining(", "));
+        }
+        return null;
+    }
+
+    /**
+     * A validated batch: the accepted couriers, and one result per courier of the request.
+     */
+    public static final class Batch {
+
+        private final CourierBatchResultDTO[] results;
+
+        private final List<Courier> accepted;
+
+        private final int[] positions;
+
+        private Batch(int size) {
+            this.results = new CourierBatchResultDTO[size];
+            this.accepted = new ArrayList<>(size);
+            this.positions = new int[size];
+        }
+
+        /**
+         * @return the accepted couriers, to be saved.
+         */
+        public List<Courier> getAccepted() {
+            return accepted;
+        }
+
+        /**
+         * Merge the results of saving the accepted couriers with the rejected ones.
+         *
+         * @param saved the results of saving the accepted couriers, indexed in {@link #getAccepted()}.
+         * @return one result per courier of the request, indexed in the request.
+         */
+        public List<CourierBatchResultDTO> complete(List<CourierBatchResultDTO> saved) {
+            for (CourierBatchResultDTO result : saved) {
+                result.setIndex(positions[result.getIndex()]);
+                results[result.getIndex()] = result;
+            }
+            return Arrays.asList(results);
+        }
+    }
+}
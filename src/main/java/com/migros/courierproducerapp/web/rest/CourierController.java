@@ -1,30 +1,61 @@
 package com.migros.courierproducerapp.web.rest;
 
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.migros.courierproducerapp.config.ApplicationProperties;
+import com.migros.courierproducerapp.config.ExecutionConfiguration;
 import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.domain.CourierStats;
 import com.migros.courierproducerapp.repository.CourierRepository;
+import com.migros.courierproducerapp.service.CourierExportService;
 import com.migros.courierproducerapp.service.CourierKafkaService;
+import com.migros.courierproducerapp.service.CourierMetrics;
 import com.migros.courierproducerapp.service.CourierService;
+import com.migros.courierproducerapp.service.dto.CourierBatchResultDTO;
+import com.migros.courierproducerapp.service.dto.CourierDTO;
+import com.migros.courierproducerapp.service.ingest.CourierWriteBehindService;
 import com.migros.courierproducerapp.util.HeaderUtil;
 import com.migros.courierproducerapp.util.PaginationUtil;
 import com.migros.courierproducerapp.util.ResponseUtil;
 import com.migros.courierproducerapp.web.rest.errors.BadRequestAlertException;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 
 /**
@@ -38,6 +69,12 @@ public class CourierController {
 
     private static final String ENTITY_NAME = "courierCourier";
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final int MAX_SLICE_LIMIT = 1000;
+
+    private static final int EXPORT_BUFFER_SIZE = 65536;
+
     @Value("${migros.clientApp.name}")
     private String applicationName;
 
@@ -47,17 +84,52 @@ public class CourierController {
 
     private final CourierService courierService;
 
-    public CourierController(CourierRepository courierRepository, CourierKafkaService courierKafkaService, CourierService courierService) {
+    private final ApplicationProperties applicationProperties;
+
+    private final CourierBatchValidator courierBatchValidator;
+
+    private final CourierWriteBehindService courierWriteBehindService;
+
+    private final CourierExportService courierExportService;
+
+    private final AsyncTaskExecutor courierExportExecutor;
+
+    /**
+     * Exports running or waiting for a thread of the export executor, so that no export is rejected by it.
+     */
+    private final Semaphore exportPermits;
+
+    private final CourierMetrics courierMetrics;
+
+    private final ObjectReader courierReader;
+
+    public CourierController(CourierRepository courierRepository, CourierKafkaService courierKafkaService, CourierService courierService,
+                             CourierWriteBehindService courierWriteBehindService, CourierExportService courierExportService,
+                             @Qualifier(ExecutionConfiguration.COURIER_EXPORT_EXECUTOR) AsyncTaskExecutor courierExportExecutor,
+                             CourierMetrics courierMetrics, ApplicationProperties applicationProperties,
+                             CourierBatchValidator courierBatchValidator, ObjectMapper objectMapper) {
         this.courierRepository = courierRepository;
         this.courierKafkaService = courierKafkaService;
         this.courierService = courierService;
+        this.courierWriteBehindService = courierWriteBehindService;
+        this.courierExportService = courierExportService;
+        this.courierExportExecutor = courierExportExecutor;
+        this.exportPermits = new Semaphore(applicationProperties.getExport().getThreads()
+            + applicationProperties.getExport().getQueueCapacity());
+        this.courierMetrics = courierMetrics;
+        this.applicationProperties = applicationProperties;
+        this.courierBatchValidator = courierBatchValidator;
+        this.courierReader = objectMapper.readerFor(Courier.class);
     }
 
     /**
      * {@code POST  /couriers} : Create a new corier.
+     * <p>
+     * With the write-behind ingest enabled, the courier is journaled and written in the background.
      *
      * @param courier the courier to create.
-     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new courier, or with status {@code 400 (Bad Request)} if the courier has already an ID.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new courier,
+     * or with status {@code 202 (Accepted)} if it is written in the background, or with status {@code 400 (Bad Request)} if the courier has already an ID.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PostMapping("/couriers")
@@ -67,14 +139,67 @@ public class CourierController {
             throw new BadRequestAlertException("A new courier cannot already have an ID", ENTITY_NAME, "idexists");
         }
         courier.setTimestamp(LocalDateTime.now());
-        Courier result = courierRepository.save(courier);
-        log.debug("SEND courier alert for Courier: {}", courier);
-        courierKafkaService.alertCourierStatus(result);
-        return ResponseEntity.created(new URI("/api/coruier/" + result.getId()))
+        if (courierWriteBehindService.accept(courier)) {
+            return ResponseEntity.accepted().location(new URI("/api/couriers/" + courier.getId()))
+                .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, courier.getId()))
+                .body(courier);
+        }
+        Courier result = courierService.save(courier);
+        publish(result);
+        return ResponseEntity.created(new URI("/api/couriers/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId()))
             .body(result);
     }
 
+    /**
+     * {@code POST  /couriers/batch} : Create a batch of new couriers from a JSON array.
+     * <p>
+     * Pings are inserted with one unordered bulk write and published as one burst. Pings without a
+     * timestamp are stamped with the server time, so devices can upload buffered pings with their own.
+     *
+     * @param couriers the couriers to create.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body one result per courier,
+     * or with status {@code 400 (Bad Request)} if the batch is too large.
+     */
+    @PostMapping(value = "/couriers/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<CourierBatchResultDTO>> createCouriers(@RequestBody List<Courier> couriers) {
+        log.debug("REST request to save a batch of {} Couriers", couriers.size());
+        courierBatchValidator.checkBatchSize(couriers.size());
+        return ResponseEntity.ok().body(saveBatch(couriers, new HashMap<>()));
+    }
+
+    /**
+     * {@code POST  /couriers/batch} : Create a batch of new couriers from a NDJSON stream, one courier per line.
+     * <p>
+     * A malformed line only rejects its own ping, the remaining lines are still created.
+     *
+     * @param request the request carrying the NDJSON body.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body one result per non-blank line,
+     * or with status {@code 400 (Bad Request)} if the batch is too large.
+     * @throws IOException if the request body cannot be read.
+     */
+    @PostMapping(value = "/couriers/batch", consumes = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<CourierBatchResultDTO>> createCouriersFromStream(HttpServletRequest request) throws IOException {
+        log.debug("REST request to save a NDJSON batch of Couriers");
+        List<Courier> couriers = new ArrayList<>();
+        Map<Integer, String> rejections = new HashMap<>();
+        BufferedReader reader = request.getReader();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            courierBatchValidator.checkBatchSize(couriers.size() + 1);
+            try {
+                couriers.add(courierReader.readValue(line));
+            } catch (JsonProcessingException e) {
+                rejections.put(couriers.size(), "Malformed courier: " + e.getOriginalMessage());
+                couriers.add(null);
+            }
+        }
+        return ResponseEntity.ok().body(saveBatch(couriers, rejections));
+    }
+
     /**
      * {@code PUT  /couriers} : Updates an existing courier.
      *
@@ -91,10 +216,8 @@ public class CourierController {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
         courier.setTimestamp(LocalDateTime.now());
-        Courier result = courierRepository.save(courier);
-
-        log.debug("SEND courier alert for Courier: {}", courier);
-        courierKafkaService.alertCourierStatus(result);
+        Courier result = courierService.save(courier);
+        publish(result);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, courier.getId()))
             .body(result);
@@ -115,6 +238,47 @@ public class CourierController {
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /couriers?limit=} : get a slice of the couriers with keyset pagination.
+     * <p>
+     * The slice is read from the {@code _id} index after the cursor, so deep slices cost the same as the first one.
+     * The {@code next} link carries the opaque cursor of the following slice. Nothing is counted unless asked.
+     *
+     * @param limit the maximum number of couriers.
+     * @param after the cursor of the slice, from the {@code next} link, or none for the first slice.
+     * @param count whether to add the estimated total number of couriers in the {@code X-Total-Count} header.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of couriers in body,
+     * or with status {@code 400 (Bad Request)} if the limit or the cursor is invalid.
+     */
+    @GetMapping(value = "/couriers", params = "limit")
+    public ResponseEntity<List<Courier>> getCouriersAfter(@RequestParam int limit, @RequestParam(required = false) String after,
+                                                          @RequestParam(defaultValue = "false") boolean count) {
+        log.debug("REST request to get a slice of {} Couriers after {}", limit, after);
+        if (limit < 1 || limit > MAX_SLICE_LIMIT) {
+            throw new BadRequestAlertException("Limit must be between 1 and " + MAX_SLICE_LIMIT, ENTITY_NAME, "invalidlimit");
+        }
+        String afterId = null;
+        if (after != null) {
+            try {
+                afterId = PaginationUtil.decodeCursor(after);
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestAlertException("Invalid cursor", ENTITY_NAME, "invalidcursor");
+            }
+            if (!ObjectId.isValid(afterId)) {
+                throw new BadRequestAlertException("Invalid cursor", ENTITY_NAME, "invalidcursor");
+            }
+        }
+        Slice<Courier> slice = courierService.findAllAfter(afterId, limit);
+        String nextCursor = slice.hasNext()
+            ? PaginationUtil.encodeCursor(slice.getContent().get(slice.getNumberOfElements() - 1).getId()) : null;
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(),
+            slice, nextCursor);
+        if (count) {
+            headers.add("X-Total-Count", Long.toString(courierService.estimateCount()));
+        }
+        return ResponseEntity.ok().headers(headers).body(slice.getContent());
+    }
+
     /**
      * {@code GET  /coruiers/:id} : get the "id" courier.
      *
@@ -128,6 +292,95 @@ public class CourierController {
         return ResponseUtil.wrapOrNotFound(courier);
     }
 
+    /**
+     * {@code GET  /couriers/export} : export the pings of a courier, or of every courier, within a time range as NDJSON.
+     * <p>
+     * Pings are streamed from a Mongo cursor to the response, one JSON object per line, in timestamp order for
+     * a courier or a range and in id order otherwise. The response is gzip-encoded when the client accepts it.
+     * Exports run on the pool of {@code application.export}, with its timeout rather than the shorter timeout of
+     * asynchronous requests, which would cut a long export off under a {@code 200 (OK)} status.
+     *
+     * @param courierID      the courier courierID code, optional.
+     * @param from           the inclusive start of the range, ISO date-time, optional.
+     * @param to             the exclusive end of the range, ISO date-time, optional.
+     * @param acceptEncoding the {@code Accept-Encoding} header.
+     * @param response       the response the pings are streamed to.
+     * @return the export, answering with status {@code 200 (OK)} and the streamed pings in body,
+     * or with status {@code 400 (Bad Request)} if the range is empty,
+     * or with status {@code 503 (Service Unavailable)} if too many exports are waiting.
+     */
+    @GetMapping(value = "/couriers/export", produces = APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> exportCouriers(@RequestParam(required = false) String courierID,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                             HttpServletResponse response) {
+        log.debug("REST request to export Couriers : {} from {} to {}", courierID, from, to);
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new BadRequestAlertException("The start of the range must be before its end", ENTITY_NAME, "invalidrange");
+        }
+        if (!exportPermits.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many exports are running");
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        WebAsyncTask<Void> export = new WebAsyncTask<>(applicationProperties.getExport().getTimeout().toMillis(), courierExportExecutor, () -> {
+            OutputStream out = response.getOutputStream();
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, EXPORT_BUFFER_SIZE);
+                courierExportService.export(courierID, from, to, compressed);
+                compressed.finish();
+            } else {
+                courierExportService.export(courierID, from, to, out);
+            }
+            out.flush();
+            return null;
+        });
+        export.onCompletion(exportPermits::release);
+        return export;
+    }
+
+    /**
+     * {@code GET  /couriers/:courierID/latest} : get the latest location of a courier, served from memory.
+     *
+     * @param courierID the courier courierID code.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the location, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/couriers/{courierID}/latest")
+    public ResponseEntity<CourierDTO> getLatestCourierLocation(@PathVariable String courierID) {
+        log.debug("REST request to get the latest location of Courier : {}", courierID);
+        return ResponseUtil.wrapOrNotFound(courierService.findLatestLocation(courierID).map(CourierDTO::new));
+    }
+
+    /**
+     * {@code GET  /couriers/near} : get the couriers whose latest location is within a radius of a point, nearest first.
+     *
+     * @param lat    the lat of the center.
+     * @param lng    the lng of the center.
+     * @param radius the radius in meters.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of locations in body.
+     */
+    @GetMapping("/couriers/near")
+    public ResponseEntity<List<CourierDTO>> getCouriersNear(@RequestParam double lat, @RequestParam double lng,
+                                                            @RequestParam double radius) {
+        log.debug("REST request to get Couriers within {}m of {},{}", radius, lat, lng);
+        if (lat < -90 || lat > 90 || lng < -180 || lng > 180) {
+            throw new BadRequestAlertException("Invalid coordinates", ENTITY_NAME, "invalidcoordinates");
+        }
+        if (!(radius > 0) || radius > applicationProperties.getGeo().getMaxRadiusMeters()) {
+            throw new BadRequestAlertException("Radius must be positive and at most "
+                + applicationProperties.getGeo().getMaxRadiusMeters() + " meters", ENTITY_NAME, "invalidradius");
+        }
+        List<CourierDTO> couriers = courierService.findNear(lat, lng, radius).stream()
+            .map(CourierDTO::new)
+            .collect(Collectors.toList());
+        return ResponseEntity.ok().body(couriers);
+    }
+
     /**
      * {@code DELETE  /coruiers/:id} : delete the "id" coruier.
      *
@@ -149,11 +402,75 @@ public class CourierController {
     @GetMapping("/couriers/getCourierDistanceByCourierID")
     public ResponseEntity<Double> getCourierDistanceByCourierID(@RequestParam(value = "courierID") String courierID) {
         log.debug("REST request to get a total distance of Courier by courierID");
-        if (courierRepository.findAllByCourierID(courierID) == null) {
+        if (!courierRepository.existsByCourierID(courierID)) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "no courier with this courierID");
         }
         Double dist = courierService.getTotalTravelDistance(courierID);
         return ResponseEntity.ok()
                 .body(dist);
     }
+
+    /**
+     * {@code GET  /couriers/:courierID/distance} : get the distance travelled by a courier within a time range.
+     *
+     * @param courierID the courier courierID code.
+     * @param from      the inclusive start of the range, ISO date-time, optional.
+     * @param to        the exclusive end of the range, ISO date-time, optional.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body double distance,
+     * or with status {@code 400 (Bad Request)} if there is no courier with this courierID.
+     */
+    @GetMapping("/couriers/{courierID}/distance")
+    public ResponseEntity<Double> getCourierDistance(@PathVariable String courierID,
+                                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.debug("REST request to get the distance of Courier : {} from {} to {}", courierID, from, to);
+        if (!courierRepository.existsByCourierID(courierID)) {
+            throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "no courier with this courierID");
+        }
+        return ResponseEntity.ok().body(courierService.getTravelDistance(courierID, from, to));
+    }
+
+    /**
+     * {@code POST  /couriers/:courierID/stats/rebuild} : rebuild the running aggregate of a courier from its history.
+     *
+     * @param courierID the courier courierID code.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the rebuilt aggregate,
+     * or with status {@code 400 (Bad Request)} if there is no courier with this courierID.
+     */
+    @PostMapping("/couriers/{courierID}/stats/rebuild")
+    public ResponseEntity<CourierStats> rebuildCourierStats(@PathVariable String courierID) {
+        log.debug("REST request to rebuild the stats of Courier : {}", courierID);
+        if (!courierRepository.existsByCourierID(courierID)) {
+            throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "no courier with this courierID");
+        }
+        return ResponseEntity.ok().body(courierService.rebuildStats(courierID));
+    }
+
+    private List<CourierBatchResultDTO> saveBatch(List<Courier> couriers, Map<Integer, String> rejections) {
+        CourierBatchValidator.Batch batch = courierBatchValidator.validate(couriers, rejections);
+        List<Courier> accepted = batch.getAccepted();
+        courierMetrics.batchSize(CourierMetrics.PATH_BATCH, accepted.size());
+        List<CourierBatchResultDTO> saved = courierService.saveAll(accepted);
+        List<Courier> persisted = new ArrayList<>(accepted.size());
+        for (CourierBatchResultDTO result : saved) {
+            if (result.getStatus() == CourierBatchResultDTO.Status.CREATED) {
+                persisted.add(accepted.get(result.getIndex()));
+            }
+        }
+        if (!applicationProperties.getOutbox().isEnabled()) {
+            log.debug("SEND courier alerts for {} Couriers", persisted.size());
+            courierKafkaService.alertCourierStatuses(persisted);
+        }
+        return batch.complete(saved);
+    }
+
+    /**
+     * Publish a saved courier, unless the outbox relay publishes it.
+     */
+    private void publish(Courier courier) {
+        if (!applicationProperties.getOutbox().isEnabled()) {
+            log.debug("SEND courier alert for Courier: {}", courier);
+            courierKafkaService.alertCourierStatus(courier);
+        }
+    }
 }
@@ -0,0 +1,92 @@
+package com.migros.courierproducerapp.web.rest;
+
+import com.migros.courierproducerapp.service.CourierFeedService;
+import com.migros.courierproducerapp.service.CourierService;
+import com.migros.courierproducerapp.service.CourierServiceException;
+import com.migros.courierproducerapp.web.rest.errors.BadRequestAlertException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * REST controller for the live feed of the {@link com.migros.courierproducerapp.domain.Courier} locations,
+ * as server-sent events.
+ * <p>
+ * Every persisted ping is pushed as a {@code location} event carrying a courier DTO. The updates of a courier a slow
+ * subscriber has not received yet are coalesced into the latest one, see {@link CourierFeedService}.
+ */
+@RestController
+@RequestMapping("/api")
+public class CourierFeedController {
+
+    private final Logger log = LoggerFactory.getLogger(CourierFeedController.class);
+
+    private static final String ENTITY_NAME = "courierCourier";
+
+    private final CourierFeedService courierFeedService;
+
+    private final CourierService courierService;
+
+    public CourierFeedController(CourierFeedService courierFeedService, CourierService courierService) {
+        this.courierFeedService = courierFeedService;
+        this.courierService = courierService;
+    }
+
+    /**
+     * {@code GET  /couriers/:courierID/feed} : stream the locations of a courier, starting with its latest one.
+     *
+     * @param courierID  the courier courierID code.
+     * @param policy     what to do when the client does not keep up, {@code DISCONNECT} or {@code DROP}.
+     * @param maxPending the number of couriers with undelivered updates after which the client does not keep up, optional.
+     * @return the stream of events, or with status {@code 503 (Service Unavailable)} if there are too many subscribers.
+     */
+    @GetMapping(value = "/couriers/{courierID}/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getCourierFeed(@PathVariable String courierID,
+                                     @RequestParam(defaultValue = "DISCONNECT") CourierFeedService.BackpressurePolicy policy,
+                                     @RequestParam(defaultValue = "0") int maxPending) {
+        log.debug("REST request to get the live feed of Courier : {}", courierID);
+        try {
+            return courierFeedService.subscribeCourier(courierID, courierService.findLatestLocation(courierID).orElse(null),
+                policy, maxPending);
+        } catch (CourierServiceException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
+    /**
+     * {@code GET  /couriers/feed} : stream the locations of every courier within a bounding box.
+     * A box with {@code minLng > maxLng} crosses the antimeridian.
+     *
+     * @param minLat     the south bound.
+     * @param minLng     the west bound.
+     * @param maxLat     the north bound.
+     * @param maxLng     the east bound.
+     * @param policy     what to do when the client does not keep up, {@code DISCONNECT} or {@code DROP}.
+     * @param maxPending the number of couriers with undelivered updates after which the client does not keep up, optional.
+     * @return the stream of events, or with status {@code 400 (Bad Request)} if the box is invalid,
+     * or with status {@code 503 (Service Unavailable)} if there are too many subscribers.
+     */
+    @GetMapping(value = "/couriers/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getRegionFeed(@RequestParam double minLat, @RequestParam double minLng,
+                                    @RequestParam double maxLat, @RequestParam double maxLng,
+                                    @RequestParam(defaultValue = "DISCONNECT") CourierFeedService.BackpressurePolicy policy,
+                                    @RequestParam(defaultValue = "0") int maxPending) {
+        log.debug("REST request to get the live feed of region {},{} {},{}", minLat, minLng, maxLat, maxLng);
+        if (minLat < -90 || maxLat > 90 || minLat > maxLat || minLng < -180 || minLng > 180 || maxLng < -180 || maxLng > 180) {
+            throw new BadRequestAlertException("Invalid bounding box", ENTITY_NAME, "invalidbox");
+        }
+        try {
+            return courierFeedService.subscribeRegion(minLat, minLng, maxLat, maxLng, policy, maxPending);
+        } catch (CourierServiceException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+}
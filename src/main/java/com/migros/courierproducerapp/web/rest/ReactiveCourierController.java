@@ -0,0 +1,122 @@
+package com.migros.courierproducerapp.web.rest;
+
+import com.migros.courierproducerapp.config.ProfileConstants;
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.service.CourierService;
+import com.migros.courierproducerapp.service.ReactiveCourierService;
+import com.migros.courierproducerapp.service.dto.CourierBatchResultDTO;
+import com.migros.courierproducerapp.service.dto.CourierDTO;
+import com.migros.courierproducerapp.util.HeaderUtil;
+import com.migros.courierproducerapp.web.rest.errors.BadRequestAlertException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Non-blocking REST controller for the ingest of {@link com.migros.courierproducerapp.domain.Courier}, enabled
+ * by the reactive profile.
+ * <p>
+ * Endpoints return a {@link Mono}, which Spring MVC serves as an asynchronous request: the Undertow worker
+ * thread is released while Mongo inserts the ping, and the response is written when the insert completes.
+ */
+@RestController
+@RequestMapping("/api/reactive")
+@Profile(ProfileConstants.SPRING_PROFILE_REACTIVE)
+public class ReactiveCourierController {
+
+    private final Logger log = LoggerFactory.getLogger(ReactiveCourierController.class);
+
+    private static final String ENTITY_NAME = "courierCourier";
+
+    @Value("${migros.clientApp.name}")
+    private String applicationName;
+
+    private final ReactiveCourierService reactiveCourierService;
+
+    private final CourierService courierService;
+
+    private final CourierBatchValidator courierBatchValidator;
+
+    public ReactiveCourierController(ReactiveCourierService reactiveCourierService, CourierService courierService,
+                                     CourierBatchValidator courierBatchValidator) {
+        this.reactiveCourierService = reactiveCourierService;
+        this.courierService = courierService;
+        this.courierBatchValidator = courierBatchValidator;
+    }
+
+    /**
+     * {@code POST  /reactive/couriers} : Create a new courier.
+     *
+     * @param courier the courier to create.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new courier, or with status {@code 400 (Bad Request)} if the courier has already an ID.
+     */
+    @PostMapping("/couriers")
+    public Mono<ResponseEntity<Courier>> createCourier(@Valid @RequestBody Courier courier) {
+        log.debug("REST request to save Courier : {}", courier);
+        if (courier.getId() != null) {
+            throw new BadRequestAlertException("A new courier cannot already have an ID", ENTITY_NAME, "idexists");
+        }
+        courier.setTimestamp(LocalDateTime.now());
+        return reactiveCourierService.create(courier)
+            .map(result -> ResponseEntity.created(URI.create("/api/reactive/couriers/" + result.getId()))
+                .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId()))
+                .body(result));
+    }
+
+    /**
+     * {@code POST  /reactive/couriers/batch} : Create a batch of new couriers from a JSON array.
+     * <p>
+     * Pings without a timestamp are stamped with the server time.
+     *
+     * @param couriers the couriers to create.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body one result per courier,
+     * or with status {@code 400 (Bad Request)} if the batch is too large.
+     */
+    @PostMapping(value = "/couriers/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<CourierBatchResultDTO>>> createCouriers(@RequestBody List<Courier> couriers) {
+        log.debug("REST request to save a batch of {} Couriers", couriers.size());
+        courierBatchValidator.checkBatchSize(couriers.size());
+        CourierBatchValidator.Batch batch = courierBatchValidator.validate(couriers);
+        return reactiveCourierService.createAll(batch.getAccepted())
+            .map(created -> ResponseEntity.ok().body(batch.complete(created)));
+    }
+
+    /**
+     * {@code GET  /reactive/couriers/:id} : get the "id" courier.
+     *
+     * @param id the id of the courier to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the courier, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/couriers/{id}")
+    public Mono<ResponseEntity<Courier>> getCourier(@PathVariable String id) {
+        log.debug("REST request to get Courier : {}", id);
+        return reactiveCourierService.findOne(id)
+            .map(ResponseEntity::ok)
+            .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    /**
+     * {@code GET  /reactive/couriers/:courierID/latest} : get the latest location of a courier, served from memory.
+     *
+     * @param courierID the courier courierID code.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the location, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/couriers/{courierID}/latest")
+    public Mono<ResponseEntity<CourierDTO>> getLatestCourierLocation(@PathVariable String courierID) {
+        log.debug("REST request to get the latest location of Courier : {}", courierID);
+        return Mono.justOrEmpty(courierService.findLatestLocation(courierID))
+            .map(location -> ResponseEntity.ok(new CourierDTO(location)))
+            .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+}
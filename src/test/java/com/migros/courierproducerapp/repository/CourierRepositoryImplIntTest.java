@@ -0,0 +1,82 @@
+package com.migros.courierproducerapp.repository;
+
+import com.migros.courierproducerapp.domain.Courier;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfigBuilder;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.runtime.Network;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests of the {@link CourierRepositoryImpl} queries on an embedded Mongo.
+ */
+class CourierRepositoryImplIntTest {
+
+    private static MongodExecutable mongodExecutable;
+
+    private static MongoClient mongoClient;
+
+    private static MongoTemplate mongoTemplate;
+
+    private final CourierRepositoryImpl courierRepository = new CourierRepositoryImpl(mongoTemplate);
+
+    @BeforeAll
+    static void startMongo() throws IOException {
+        int port = Network.getFreeServerPort();
+        mongodExecutable = MongodStarter.getDefaultInstance().prepare(new MongodConfigBuilder()
+            .version(Version.Main.V4_0)
+            .net(new Net(port, Network.localhostIsIPv6()))
+            .build());
+        mongodExecutable.start();
+        mongoClient = MongoClients.create("mongodb://localhost:" + port);
+        mongoTemplate = new MongoTemplate(mongoClient, "courierproducerapp");
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        mongoClient.close();
+        mongodExecutable.stop();
+    }
+
+    @BeforeEach
+    void clear() {
+        mongoTemplate.dropCollection(Courier.class);
+    }
+
+    @Test
+    void findAfterWalksTheSlices() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Courier courier = new Courier();
+            courier.setCourierID("courier-" + i);
+            courier.setLat(40.99);
+            courier.setLng(29.12);
+            courier.setTimestamp(LocalDateTime.of(2020, 6, 1, 12, 0, i));
+            ids.add(mongoTemplate.insert(courier).getId());
+        }
+
+        List<Courier> first = courierRepository.findAfter(null, 3);
+        List<Courier> second = courierRepository.findAfter(first.get(first.size() - 1).getId(), 3);
+        List<Courier> last = courierRepository.findAfter(second.get(second.size() - 1).getId(), 3);
+
+        assertThat(first.stream().map(Courier::getId).collect(Collectors.toList())).isEqualTo(ids.subList(0, 3));
+        assertThat(second.stream().map(Courier::getId).collect(Collectors.toList())).isEqualTo(ids.subList(3, 5));
+        assertThat(last).isEmpty();
+    }
+}
@@ -0,0 +1,131 @@
+package com.migros.courierproducerapp.service.ingest;
+
+import com.migros.courierproducerapp.domain.Courier;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests of {@link CourierJournal}.
+ */
+class CourierJournalTest {
+
+    private static final long SEGMENT_BYTES = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversTheAppendedPings() throws IOException {
+        List<Courier> couriers = couriers(3);
+        CourierJournal journal = new CourierJournal(directory, SEGMENT_BYTES);
+        assertThat(journal.recover()).isEmpty();
+        for (Courier courier : couriers) {
+            journal.append(courier);
+        }
+        journal.sync();
+        journal.close();
+
+        List<CourierJournal.Entry> recovered = new CourierJournal(directory, SEGMENT_BYTES).recover();
+
+        assertThat(recovered).extracting(CourierJournal.Entry::getCourier)
+            .usingFieldByFieldElementComparator()
+            .containsExactlyElementsOf(couriers);
+    }
+
+    @Test
+    void ignoresATruncatedLastRecord() throws IOException {
+        List<Courier> couriers = couriers(3);
+        CourierJournal journal = new CourierJournal(directory, SEGMENT_BYTES);
+        journal.recover();
+        for (Courier courier : couriers) {
+            journal.append(courier);
+        }
+        journal.close();
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        List<CourierJournal.Entry> recovered = new CourierJournal(directory, SEGMENT_BYTES).recover();
+
+        assertThat(recovered).extracting(entry -> entry.getCourier().getId())
+            .containsExactly(couriers.get(0).getId(), couriers.get(1).getId());
+    }
+
+    @Test
+    void rollsOverToANewSegmentOnceFull() throws IOException {
+        List<Courier> couriers = couriers(5);
+        CourierJournal journal = new CourierJournal(directory, 1);
+        journal.recover();
+        List<CourierJournal.Entry> entries = new ArrayList<>();
+        for (Courier courier : couriers) {
+            entries.add(journal.append(courier));
+        }
+        journal.close();
+
+        assertThat(entries).extracting(CourierJournal.Entry::getSegment).containsExactly(0L, 1L, 2L, 3L, 4L);
+        assertThat(segments()).hasSize(5);
+        assertThat(new CourierJournal(directory, 1).recover()).extracting(entry -> entry.getCourier().getId())
+            .containsExactlyElementsOf(couriers.stream().map(Courier::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void deletesASegmentOnceAllItsPingsAreReleased() throws IOException {
+        CourierJournal journal = new CourierJournal(directory, 1);
+        journal.recover();
+        List<CourierJournal.Entry> first = new ArrayList<>();
+        for (Courier courier : couriers(2)) {
+            first.add(journal.append(courier));
+        }
+        CourierJournal.Entry last = journal.append(couriers(1).get(0));
+        assertThat(first).extracting(CourierJournal.Entry::getSegment).containsExactly(0L, 1L);
+        assertThat(segments()).hasSize(3);
+
+        journal.release(first.subList(0, 1));
+        assertThat(segments()).extracting(path -> path.getFileName().toString())
+            .containsExactly(String.format("%020d.journal", 1), String.format("%020d.journal", 2));
+
+        journal.release(first.subList(1, 2));
+        journal.release(Collections.singletonList(last));
+        assertThat(segments()).as("the active segment is kept until closed").hasSize(1);
+
+        journal.close();
+        assertThat(segments()).isEmpty();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static List<Courier> couriers(int count) {
+        List<Courier> couriers = new ArrayList<>(count);
+        LocalDateTime timestamp = LocalDateTime.of(2020, 6, 1, 12, 0, 0);
+        for (int i = 0; i < count; i++) {
+            Courier courier = new Courier();
+            courier.setId(new ObjectId().toHexString());
+            courier.setCourierID("courier-" + i);
+            courier.setLat(41.0 + i / 100.0);
+            courier.setLng(29.0 - i / 100.0);
+            courier.setTimestamp(timestamp.plusSeconds(i));
+            couriers.add(courier);
+        }
+        return couriers;
+    }
+}
@@ -0,0 +1,90 @@
+package com.migros.courierproducerapp.service.ingest;
+
+import com.migros.courierproducerapp.config.ApplicationProperties;
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.service.CourierKafkaService;
+import com.migros.courierproducerapp.service.CourierMetrics;
+import com.migros.courierproducerapp.service.CourierService;
+import com.migros.courierproducerapp.service.dto.CourierBatchResultDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests of {@link CourierWriteBehindService}.
+ */
+class CourierWriteBehindServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final CourierService courierService = mock(CourierService.class);
+
+    private final CourierKafkaService courierKafkaService = mock(CourierKafkaService.class);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private CourierWriteBehindService writeBehindService;
+
+    @BeforeEach
+    void setUp() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getIngest().getWriteBehind().setEnabled(true);
+        properties.getIngest().getWriteBehind().setWorkers(1);
+        properties.getIngest().getWriteBehind().setJournalDirectory(directory.toString());
+        writeBehindService = new CourierWriteBehindService(properties, courierService, courierKafkaService,
+            new CourierMetrics(registry));
+    }
+
+    @Test
+    void deadLettersThePingsThatCannotBeWritten() throws Exception {
+        Courier written = courier("written");
+        Courier refused = courier("refused");
+        when(courierService.saveAllIdempotent(anyList())).thenAnswer(invocation -> {
+            List<Courier> couriers = invocation.getArgument(0);
+            List<CourierBatchResultDTO> results = new ArrayList<>();
+            for (int i = 0; i < couriers.size(); i++) {
+                Courier courier = couriers.get(i);
+                results.add(courier == refused
+                    ? CourierBatchResultDTO.failed(i, courier.getId(), "Document failed validation")
+                    : CourierBatchResultDTO.created(i, courier.getId()));
+            }
+            return results;
+        });
+        writeBehindService.start();
+
+        assertThat(writeBehindService.accept(written)).isTrue();
+        assertThat(writeBehindService.accept(refused)).isTrue();
+        verify(courierKafkaService, timeout(5000)).alertCourierStatuses(Collections.singletonList(written));
+        writeBehindService.shutdown();
+
+        assertThat(registry.get("courier.ingest.write_behind.failed").counter().count()).isEqualTo(1);
+        assertThat(new CourierJournal(directory, Long.MAX_VALUE).recover()).isEmpty();
+        assertThat(new CourierJournal(directory.resolve(CourierWriteBehindService.DEAD_LETTER_DIRECTORY), Long.MAX_VALUE).recover())
+            .extracting(entry -> entry.getCourier().getId())
+            .containsExactly(refused.getId());
+    }
+
+    private static Courier courier(String courierID) {
+        Courier courier = new Courier();
+        courier.setCourierID(courierID);
+        courier.setLat(41.0);
+        courier.setLng(29.0);
+        courier.setTimestamp(LocalDateTime.of(2020, 6, 1, 12, 0, 0));
+        return courier;
+    }
+}
@@ -0,0 +1,83 @@
+package com.migros.courierproducerapp.service.kafka;
+
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit tests of {@link ConsistentHashPartitioner}.
+ */
+class ConsistentHashPartitionerTest {
+
+    private static final String TOPIC = "courier";
+
+    private static final int KEYS = 20000;
+
+    private final ConsistentHashPartitioner partitioner = new ConsistentHashPartitioner();
+
+    @Test
+    void mapsAKeyToTheSamePartition() {
+        Cluster cluster = cluster(12);
+        for (int i = 0; i < KEYS; i++) {
+            String key = "courier-" + i;
+            assertThat(partition(key, cluster)).isEqualTo(partition(key, cluster));
+            assertThat(partition(key, cluster)).isEqualTo(new ConsistentHashPartitioner().partition(TOPIC, key,
+                key.getBytes(StandardCharsets.UTF_8), null, null, cluster(12)));
+        }
+    }
+
+    @Test
+    void staysWithinThePartitions() {
+        for (int numPartitions : new int[]{1, 2, 3, 7, 16, 100}) {
+            Cluster cluster = cluster(numPartitions);
+            for (int i = 0; i < KEYS; i++) {
+                assertThat(partition("courier-" + i, cluster)).isBetween(0, numPartitions - 1);
+            }
+            for (int i = 0; i < 100; i++) {
+                assertThat(partitioner.partition(TOPIC, null, null, null, null, cluster)).isBetween(0, numPartitions - 1);
+            }
+        }
+    }
+
+    @Test
+    void movesOnlyTheKeysOfTheNewPartitionWhenGrowing() {
+        for (int numPartitions : new int[]{1, 4, 9, 31}) {
+            Cluster before = cluster(numPartitions);
+            Cluster after = cluster(numPartitions + 1);
+            int moved = 0;
+            for (int i = 0; i < KEYS; i++) {
+                String key = "courier-" + i;
+                int partition = partition(key, after);
+                if (partition != partition(key, before)) {
+                    assertThat(partition).as("a moved key goes to the new partition").isEqualTo(numPartitions);
+                    moved++;
+                }
+            }
+            double expected = 1.0 / (numPartitions + 1);
+            assertThat((double) moved / KEYS).as("share of the keys moved from %d partitions", numPartitions)
+                .isCloseTo(expected, within(0.2 * expected));
+        }
+    }
+
+    private int partition(String key, Cluster cluster) {
+        return partitioner.partition(TOPIC, key, key.getBytes(StandardCharsets.UTF_8), null, null, cluster);
+    }
+
+    private static Cluster cluster(int numPartitions) {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> partitions = new ArrayList<>(numPartitions);
+        for (int i = 0; i < numPartitions; i++) {
+            partitions.add(new PartitionInfo(TOPIC, i, node, new Node[]{node}, new Node[]{node}));
+        }
+        return new Cluster("cluster", Collections.singletonList(node), partitions, Collections.emptySet(), Collections.emptySet());
+    }
+}
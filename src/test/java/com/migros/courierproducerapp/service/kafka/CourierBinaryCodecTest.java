@@ -0,0 +1,112 @@
+package com.migros.courierproducerapp.service.kafka;
+
+import com.migros.courierproducerapp.domain.CourierLocation;
+import com.migros.courierproducerapp.service.dto.CourierDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit tests of {@link CourierBinaryCodec}.
+ */
+class CourierBinaryCodecTest {
+
+    private static final double RESOLUTION = 1e-7;
+
+    @Test
+    void decodesWhatItEncodes() {
+        CourierDTO courier = courier(41.0082376, 28.9783589);
+        courier.setTimestamp(LocalDateTime.of(2020, 6, 1, 12, 30, 15, 123_000_000));
+
+        byte[] data = CourierBinaryCodec.encode(courier);
+        CourierDTO decoded = CourierBinaryCodec.decode(data);
+
+        assertThat(data).hasSize(19 + "courier-1".length());
+        assertThat(decoded.getCourierID()).isEqualTo(courier.getCourierID());
+        assertThat(decoded.getLat()).isCloseTo(courier.getLat(), within(RESOLUTION));
+        assertThat(decoded.getLng()).isCloseTo(courier.getLng(), within(RESOLUTION));
+        assertThat(decoded.getTimestamp()).isEqualTo(courier.getTimestamp());
+    }
+
+    @Test
+    void encodesTheSameRecordFromALocation() {
+        CourierLocation location = new CourierLocation("courier-1", -90, 180, 1591014615123L);
+
+        byte[] data = CourierBinaryCodec.encode(location);
+
+        assertThat(CourierBinaryCodec.encode(new CourierDTO(location))).isEqualTo(data);
+        assertThat(CourierBinaryCodec.decodeLocation(data)).isEqualTo(location);
+    }
+
+    @Test
+    void keepsAMissingTimestamp() {
+        assertThat(CourierBinaryCodec.decode(CourierBinaryCodec.encode(courier(0, 0))).getTimestamp()).isNull();
+    }
+
+    @Test
+    void rejectsATruncatedRecord() {
+        byte[] data = Arrays.copyOf(CourierBinaryCodec.encode(courier(41, 29)), 10);
+
+        assertThatThrownBy(() -> CourierBinaryCodec.decode(data))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Truncated");
+    }
+
+    @Test
+    void rejectsARecordNotMatchingItsCourierIDLength() {
+        byte[] data = CourierBinaryCodec.encode(courier(41, 29));
+
+        assertThatThrownBy(() -> CourierBinaryCodec.decode(Arrays.copyOf(data, data.length - 1)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("does not match its courierID length");
+        assertThatThrownBy(() -> CourierBinaryCodec.decode(Arrays.copyOf(data, data.length + 1)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("does not match its courierID length");
+    }
+
+    @Test
+    void rejectsAnUnsupportedVersion() {
+        byte[] data = CourierBinaryCodec.encode(courier(41, 29));
+        data[0] = CourierBinaryCodec.VERSION + 1;
+
+        assertThatThrownBy(() -> CourierBinaryCodec.decode(data))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("version");
+    }
+
+    @Test
+    void rejectsCoordinatesOutOfRange() {
+        assertThatThrownBy(() -> CourierBinaryCodec.encode(courier(90.0000001, 0)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageStartingWith("lat");
+        assertThatThrownBy(() -> CourierBinaryCodec.encode(courier(0, -180.0000001)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageStartingWith("lng");
+        assertThatThrownBy(() -> CourierBinaryCodec.encode(courier(0, 1000)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageStartingWith("lng");
+    }
+
+    @Test
+    void rejectsNaNCoordinates() {
+        assertThatThrownBy(() -> CourierBinaryCodec.encode(courier(Double.NaN, 0)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageStartingWith("lat");
+        assertThatThrownBy(() -> CourierBinaryCodec.encode(courier(0, Double.NaN)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageStartingWith("lng");
+    }
+
+    private static CourierDTO courier(double lat, double lng) {
+        CourierDTO courier = new CourierDTO();
+        courier.setCourierID("courier-1");
+        courier.setLat(lat);
+        courier.setLng(lng);
+        return courier;
+    }
+}
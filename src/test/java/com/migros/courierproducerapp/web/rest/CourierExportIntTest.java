@@ -0,0 +1,146 @@
+package com.migros.courierproducerapp.web.rest;
+
+import com.migros.courierproducerapp.config.ApplicationProperties;
+import com.migros.courierproducerapp.config.ExecutionConfiguration;
+import com.migros.courierproducerapp.config.JacksonConfiguration;
+import com.migros.courierproducerapp.repository.CourierRepository;
+import com.migros.courierproducerapp.service.CourierExportService;
+import com.migros.courierproducerapp.service.CourierKafkaService;
+import com.migros.courierproducerapp.service.CourierMetrics;
+import com.migros.courierproducerapp.service.CourierService;
+import com.migros.courierproducerapp.service.ingest.CourierWriteBehindService;
+import com.migros.courierproducerapp.web.rest.errors.ExceptionTranslator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Integration tests of {@code GET /api/couriers/export} on Undertow, with an asynchronous request timeout
+ * shorter than the exports, standing for its 30 s default.
+ */
+@SpringBootTest(classes = CourierExportIntTest.ExportConfiguration.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "spring.mvc.async.request-timeout=500ms",
+        "application.export.threads=1",
+        "application.export.queue-capacity=0",
+        "application.export.timeout=1m"
+    })
+class CourierExportIntTest {
+
+    private static final int LINES = 6;
+
+    private static final long LINE_DELAY_MILLIS = 250;
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({PropertyPlaceholderAutoConfiguration.class, ServletWebServerFactoryAutoConfiguration.class,
+        DispatcherServletAutoConfiguration.class, WebMvcAutoConfiguration.class, HttpMessageConvertersAutoConfiguration.class,
+        JacksonAutoConfiguration.class, TaskExecutionAutoConfiguration.class})
+    @EnableConfigurationProperties(ApplicationProperties.class)
+    @Import({CourierController.class, ExecutionConfiguration.class, JacksonConfiguration.class, ExceptionTranslator.class})
+    static class ExportConfiguration {
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private CourierExportService courierExportService;
+
+    @MockBean
+    private CourierRepository courierRepository;
+
+    @MockBean
+    private CourierKafkaService courierKafkaService;
+
+    @MockBean
+    private CourierService courierService;
+
+    @MockBean
+    private CourierWriteBehindService courierWriteBehindService;
+
+    @MockBean
+    private CourierMetrics courierMetrics;
+
+    @MockBean
+    private CourierBatchValidator courierBatchValidator;
+
+    @BeforeEach
+    void slowExport() throws IOException {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(3);
+            for (int i = 0; i < LINES; i++) {
+                out.write(("{\"line\":" + i + "}\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                Thread.sleep(LINE_DELAY_MILLIS);
+            }
+            return (long) LINES;
+        }).when(courierExportService).export(any(), isNull(), isNull(), any());
+    }
+
+    @Test
+    void streamsPastTheAsyncRequestTimeout() throws IOException {
+        HttpURLConnection connection = open();
+
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getContentType()).startsWith(CourierController.APPLICATION_NDJSON_VALUE);
+        assertThat(readLines(connection)).hasSize(LINES).endsWith("{\"line\":" + (LINES - 1) + "}");
+    }
+
+    @Test
+    void refusesExportsBeyondTheQueue() throws Exception {
+        CompletableFuture<List<String>> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return readLines(open());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        verify(courierExportService, timeout(5000)).export(any(), isNull(), isNull(), any());
+
+        assertThat(open().getResponseCode()).isEqualTo(503);
+        assertThat(first.get()).hasSize(LINES);
+    }
+
+    private HttpURLConnection open() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/api/couriers/export").openConnection();
+        connection.setReadTimeout(10000);
+        return connection;
+    }
+
+    private static List<String> readLines(HttpURLConnection connection) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+}
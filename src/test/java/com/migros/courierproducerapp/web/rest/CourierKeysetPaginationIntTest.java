@@ -0,0 +1,149 @@
+package com.migros.courierproducerapp.web.rest;
+
+import com.migros.courierproducerapp.config.ApplicationProperties;
+import com.migros.courierproducerapp.config.ExecutionConfiguration;
+import com.migros.courierproducerapp.config.JacksonConfiguration;
+import com.migros.courierproducerapp.domain.Courier;
+import com.migros.courierproducerapp.repository.CourierRepository;
+import com.migros.courierproducerapp.service.CourierExportService;
+import com.migros.courierproducerapp.service.CourierKafkaService;
+import com.migros.courierproducerapp.service.CourierMetrics;
+import com.migros.courierproducerapp.service.CourierService;
+import com.migros.courierproducerapp.service.ingest.CourierWriteBehindService;
+import com.migros.courierproducerapp.util.PaginationUtil;
+import com.migros.courierproducerapp.web.rest.errors.ExceptionTranslator;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration tests of the keyset pagination of {@code GET /api/couriers?limit=}.
+ */
+@SpringBootTest(classes = CourierKeysetPaginationIntTest.PaginationConfiguration.class)
+@AutoConfigureMockMvc(addFilters = false)
+class CourierKeysetPaginationIntTest {
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({PropertyPlaceholderAutoConfiguration.class, WebMvcAutoConfiguration.class,
+        HttpMessageConvertersAutoConfiguration.class, JacksonAutoConfiguration.class, TaskExecutionAutoConfiguration.class})
+    @EnableConfigurationProperties(ApplicationProperties.class)
+    @Import({CourierController.class, ExecutionConfiguration.class, JacksonConfiguration.class, ExceptionTranslator.class})
+    static class PaginationConfiguration {
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CourierExportService courierExportService;
+
+    @MockBean
+    private CourierRepository courierRepository;
+
+    @MockBean
+    private CourierKafkaService courierKafkaService;
+
+    @MockBean
+    private CourierService courierService;
+
+    @MockBean
+    private CourierWriteBehindService courierWriteBehindService;
+
+    @MockBean
+    private CourierMetrics courierMetrics;
+
+    @MockBean
+    private CourierBatchValidator courierBatchValidator;
+
+    @Test
+    void linksTheNextSliceAfterItsLastCourier() throws Exception {
+        List<Courier> couriers = couriers(2);
+        when(courierService.findAllAfter(null, 2)).thenReturn(new SliceImpl<>(couriers, PageRequest.of(0, 2), true));
+        String next = PaginationUtil.encodeCursor(couriers.get(1).getId());
+
+        mockMvc.perform(get("/api/couriers?limit=2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(header().string("Link", "<http://localhost/api/couriers?after=" + next + "&limit=2>; rel=\"next\","
+                + "<http://localhost/api/couriers?limit=2>; rel=\"first\""));
+    }
+
+    @Test
+    void followsTheCursorAndLinksOnlyTheFirstSliceAtTheEnd() throws Exception {
+        String after = new ObjectId().toHexString();
+        when(courierService.findAllAfter(after, 2)).thenReturn(new SliceImpl<>(couriers(1), PageRequest.of(0, 2), false));
+
+        mockMvc.perform(get("/api/couriers?limit=2&after=" + PaginationUtil.encodeCursor(after)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(header().string("Link", "<http://localhost/api/couriers?limit=2>; rel=\"first\""));
+    }
+
+    @Test
+    void rejectsAMalformedCursor() throws Exception {
+        mockMvc.perform(get("/api/couriers?limit=2&after=!!!"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.invalidcursor"));
+
+        verify(courierService, never()).findAllAfter(anyString(), anyInt());
+    }
+
+    @Test
+    void rejectsACursorNotHoldingAnId() throws Exception {
+        mockMvc.perform(get("/api/couriers?limit=2&after=" + PaginationUtil.encodeCursor("courier-1")))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.invalidcursor"));
+    }
+
+    @Test
+    void rejectsALimitOutOfRange() throws Exception {
+        mockMvc.perform(get("/api/couriers?limit=0"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.invalidlimit"));
+        mockMvc.perform(get("/api/couriers?limit=1001"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.invalidlimit"));
+    }
+
+    private static List<Courier> couriers(int count) {
+        List<Courier> couriers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Courier courier = new Courier();
+            courier.setId(new ObjectId().toHexString());
+            courier.setCourierID("courier-" + i);
+            courier.setLat(41.0);
+            courier.setLng(29.0);
+            couriers.add(courier);
+        }
+        return couriers;
+    }
+}